@@ -0,0 +1,69 @@
+package bench;
+
+import app.AlgoInputHandler;
+import app.SolutionCache;
+import events.Event;
+import events.Publisher;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * End to end AlgoInputHandler.handleEvent on a file in a temp directory: open, map, parse, solve (or cache hit),
+ * append the solution. The file is rewritten before every invocation (not measured), since handleEvent appends to it.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Dorg.slf4j.simpleLogger.defaultLogLevel=warn")
+@State(Scope.Thread)
+public class HandlerBenchmark {
+    @Param({"knapsack", "sequencealignment"})
+    String algorithm;
+
+    @Param({"100", "1000"})
+    int size;
+
+    /** with the cache every invocation after the first is a hit */
+    @Param({"false", "true"})
+    boolean cache;
+
+    private Path dir;
+    private Path file;
+    private List<String> lines;
+    private AlgoInputHandler handler;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        dir = Files.createTempDirectory("algo-bench");
+        file = dir.resolve("problem.txt");
+        lines = algorithm.equals("knapsack")
+                ? Inputs.knapsack(size, 10 * size, 42)
+                : Inputs.sequenceAlignment(size, true, 2, 3, 42);
+        SolutionCache solutionCache = new SolutionCache(cache ? 64L * 1024 * 1024 : 0, Duration.ofHours(1), null);
+        handler = new AlgoInputHandler(new Publisher(), solutionCache);
+    }
+
+    @Setup(Level.Invocation)
+    public void writeFile() throws IOException {
+        Files.write(file, lines, StandardCharsets.UTF_8);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(file);
+        Files.deleteIfExists(dir);
+    }
+
+    @Benchmark
+    public String handleEvent(){
+        return handler.handleEvent(file.toString(), Event.FILE_CREATED);
+    }
+}
@@ -0,0 +1,64 @@
+package bench;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Generated problem files, same format as the watched input files (header line first).
+ * Seeded, so every run and every fork measures the same instances.
+ */
+class Inputs {
+    private static final String[] BASES = {"A", "C", "G", "T"};
+
+    private Inputs() {
+    }
+
+    /**
+     * @param capacity weights are drawn from [1, capacity / 4], so a solution takes several items
+     */
+    static List<String> knapsack(int items, int capacity, long seed){
+        Random random = new Random(seed);
+        StringBuilder values = new StringBuilder();
+        StringBuilder weights = new StringBuilder();
+        int maxWeight = Math.max(1, capacity / 4);
+        for (int i=0; i < items; i++){
+            if (i > 0){
+                values.append(' ');
+                weights.append(' ');
+            }
+            values.append(1 + random.nextInt(1000));
+            weights.append(1 + random.nextInt(maxWeight));
+        }
+        return List.of("Knapsack", values.toString(), weights.toString(), String.valueOf(capacity));
+    }
+
+    /**
+     * @param similar the second sequence is the first with about 1 in 20 positions edited,
+     *                otherwise both are random
+     */
+    static List<String> sequenceAlignment(int length, boolean similar, int gap, int mismatch, long seed){
+        Random random = new Random(seed);
+        List<String> first = new ArrayList<>(length);
+        for (int i=0; i < length; i++){
+            first.add(BASES[random.nextInt(BASES.length)]);
+        }
+
+        List<String> second = new ArrayList<>(length);
+        for (int i=0; i < length; i++){
+            if (!similar){
+                second.add(BASES[random.nextInt(BASES.length)]);
+                continue;
+            }
+            switch (random.nextInt(60)){
+                case 0 -> second.add(BASES[random.nextInt(BASES.length)]); // substitution
+                case 1 -> {} // deletion
+                case 2 -> second.addAll(List.of(first.get(i), BASES[random.nextInt(BASES.length)])); // insertion
+                default -> second.add(first.get(i));
+            }
+        }
+
+        return List.of("Sequence Alignment", String.join(" ", first), String.join(" ", second),
+                String.valueOf(gap), String.valueOf(mismatch));
+    }
+}
@@ -0,0 +1,36 @@
+package bench;
+
+import algo.Knapsack;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Knapsack.solve including parsing, so whichever engine Knapsack picks for the size is what gets measured.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Dorg.slf4j.simpleLogger.defaultLogLevel=warn")
+@State(Scope.Benchmark)
+public class KnapsackBenchmark {
+    @Param({"50", "500"})
+    int items;
+
+    @Param({"1000", "100000"})
+    int capacity;
+
+    private List<String> lines;
+
+    @Setup
+    public void setup(){
+        lines = Inputs.knapsack(items, capacity, 42);
+    }
+
+    @Benchmark
+    public String solve(){
+        return new Knapsack().solve(lines, "bench");
+    }
+}
@@ -0,0 +1,42 @@
+package bench;
+
+import algo.SequenceAlignment;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * SequenceAlignment.solve above the linear space threshold (16M cells): Hirschberg with the cost rows filled in
+ * parallel tiles (parallelThreshold at its default) against the sequential one (parallelThreshold = Long.MAX_VALUE).
+ * The speedup is the ratio of the two, up to about the number of cores.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 3, time = 5)
+@Fork(value = 1, jvmArgsAppend = "-Dorg.slf4j.simpleLogger.defaultLogLevel=warn")
+@State(Scope.Benchmark)
+public class LargeAlignmentBenchmark {
+    private static final long LINEAR_SPACE_THRESHOLD = 16L * 1024 * 1024;
+
+    /** 25M and 64M cells */
+    @Param({"5000", "8000"})
+    int length;
+
+    @Param({"1048576", "9223372036854775807"})
+    long parallelThreshold;
+
+    private List<String> lines;
+
+    @Setup
+    public void setup(){
+        // dissimilar, gap != mismatch: neither the banded nor the bit-parallel engine applies
+        lines = Inputs.sequenceAlignment(length, false, 2, 3, 42);
+    }
+
+    @Benchmark
+    public String solve(){
+        return new SequenceAlignment(LINEAR_SPACE_THRESHOLD, parallelThreshold, 256).solve(lines, "bench");
+    }
+}
@@ -0,0 +1,98 @@
+package bench;
+
+import algo.ProblemReader;
+import algo.SymbolTable;
+import algo.Util;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Reading a knapsack and a sequence alignment file: the mapped ProblemReader the handler uses,
+ * against reading all lines and splitting them with Util.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Dorg.slf4j.simpleLogger.defaultLogLevel=warn")
+@State(Scope.Benchmark)
+public class ParserBenchmark {
+    @Param({"1000", "100000"})
+    int tokens;
+
+    private Path dir;
+    private Path knapsackFile;
+    private Path alignmentFile;
+    private List<String> knapsackLines;
+
+    @Setup
+    public void setup() throws IOException {
+        dir = Files.createTempDirectory("algo-bench");
+        knapsackLines = Inputs.knapsack(tokens, 1000, 42);
+        knapsackFile = Files.write(dir.resolve("knapsack.txt"), knapsackLines, StandardCharsets.UTF_8);
+        alignmentFile = Files.write(dir.resolve("alignment.txt"),
+                Inputs.sequenceAlignment(tokens, true, 2, 3, 42), StandardCharsets.UTF_8);
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(knapsackFile);
+        Files.deleteIfExists(alignmentFile);
+        Files.deleteIfExists(dir);
+    }
+
+    @Benchmark
+    public void mappedInts(Blackhole bh) throws IOException {
+        try (FileChannel channel = FileChannel.open(knapsackFile, StandardOpenOption.READ)) {
+            ProblemReader reader = ProblemReader.map(channel);
+            reader.skipLine();
+            bh.consume(reader.readInts());
+            bh.consume(reader.readInts());
+            bh.consume(reader.readInt());
+        }
+    }
+
+    @Benchmark
+    public void mappedSymbols(Blackhole bh) throws IOException {
+        try (FileChannel channel = FileChannel.open(alignmentFile, StandardOpenOption.READ)) {
+            ProblemReader reader = ProblemReader.map(channel);
+            SymbolTable symbols = new SymbolTable();
+            reader.skipLine();
+            bh.consume(reader.readSymbols(symbols));
+            bh.consume(reader.readSymbols(symbols));
+        }
+    }
+
+    @Benchmark
+    public void readAllLinesAndSplit(Blackhole bh) throws IOException {
+        List<String> lines = Files.readAllLines(knapsackFile, StandardCharsets.UTF_8);
+        bh.consume(Util.splitBySpacesToIntegers(lines, 1));
+        bh.consume(Util.splitBySpacesToIntegers(lines, 2));
+        bh.consume(Util.getInt(lines, 3));
+    }
+
+    @Benchmark
+    public void linesInts(Blackhole bh){
+        ProblemReader reader = ProblemReader.of(knapsackLines);
+        reader.skipLine();
+        bh.consume(reader.readInts());
+        bh.consume(reader.readInts());
+        bh.consume(reader.readInt());
+    }
+
+    @Benchmark
+    public void utilSplit(Blackhole bh){
+        bh.consume(Util.splitBySpacesToIntegers(knapsackLines, 1));
+        bh.consume(Util.splitBySpacesToIntegers(knapsackLines, 2));
+        bh.consume(Util.getInt(knapsackLines, 3));
+    }
+}
@@ -0,0 +1,46 @@
+package bench;
+
+import events.Event;
+import events.EventData;
+import events.Publisher;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Publisher.notifyListeners to a number of subscribers that do next to nothing. Delivery is asynchronous, so this is
+ * the publishing side, including waiting for room when the drain threads fall behind.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Dorg.slf4j.simpleLogger.defaultLogLevel=warn")
+@State(Scope.Benchmark)
+public class PublisherBenchmark {
+    @Param({"1", "4", "16"})
+    int subscribers;
+
+    private final EventData eventData = new EventData(Event.TASK_STATS, "{\"algorithm\":\"knapsack\",\"time_ms\":1}");
+    private Publisher publisher;
+    private long received;
+
+    @Setup
+    public void setup(){
+        publisher = new Publisher();
+        for (int i=0; i < subscribers; i++){
+            publisher.subscribe(Event.TASK_STATS, data -> received += data.getData().length());
+        }
+    }
+
+    @TearDown
+    public void tearDown(){
+        publisher.close();
+    }
+
+    @Benchmark
+    public long notifyListeners(){
+        publisher.notifyListeners(eventData);
+        return received;
+    }
+}
@@ -0,0 +1,43 @@
+package bench;
+
+import algo.SequenceAlignment;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * SequenceAlignment.solve including parsing. gap == mismatch takes the bit-parallel engine,
+ * similar sequences the banded one.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Dorg.slf4j.simpleLogger.defaultLogLevel=warn")
+@State(Scope.Benchmark)
+public class SequenceAlignmentBenchmark {
+    @Param({"100", "1000", "10000"})
+    int length;
+
+    @Param({"true", "false"})
+    boolean similar;
+
+    /** gap and mismatch cost */
+    @Param({"2 3", "1 1"})
+    String costs;
+
+    private List<String> lines;
+
+    @Setup
+    public void setup(){
+        String[] gapAndMismatch = costs.split(" ");
+        lines = Inputs.sequenceAlignment(length, similar,
+                Integer.parseInt(gapAndMismatch[0]), Integer.parseInt(gapAndMismatch[1]), 42);
+    }
+
+    @Benchmark
+    public String solve(){
+        return new SequenceAlignment().solve(lines, "bench");
+    }
+}
@@ -3,6 +3,40 @@ package algo;
 import java.util.List;
 
 public interface AlgoSolver {
-    String solve(List<String> data, String filename);
-    boolean parse(List<String> data);
+    /**
+     * @param reader positioned after the header (algorithm name) line
+     * @throws java.util.concurrent.CancellationException if the thread is interrupted while solving
+     */
+    String solve(ProblemReader reader, String filename);
+    boolean parse(ProblemReader reader);
+
+    /**
+     * parse(reader), with the filename for the logs.
+     */
+    boolean parse(ProblemReader reader, String filename);
+
+    /**
+     * Solves the problem read by the last successful parse. solve(reader, filename) is parse + solveParsed,
+     * split for callers that time the two apart.
+     * @throws java.util.concurrent.CancellationException if the thread is interrupted while solving
+     */
+    String solveParsed();
+
+    /**
+     * Rough cost of solving, e.g. the number of DP cells, for scheduling. Reads only the sizes, not the content.
+     * @param reader positioned after the header (algorithm name) line
+     */
+    long estimateCost(ProblemReader reader);
+
+    default String solve(List<String> data, String filename){
+        ProblemReader reader = ProblemReader.of(data);
+        reader.skipLine();
+        return solve(reader, filename);
+    }
+
+    default boolean parse(List<String> data){
+        ProblemReader reader = ProblemReader.of(data);
+        reader.skipLine();
+        return parse(reader);
+    }
 }
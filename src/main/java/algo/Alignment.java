@@ -0,0 +1,25 @@
+package algo;
+
+/**
+ * An alignment of str1 (rows of the DP matrix) against str2 (columns), as the moves of its path from (0,0) to (m,n).
+ * <p>
+ * All engines agree on the same path: walking back from (m,n), the first valid move in the order
+ * UP, DIAG, LEFT is taken. That is the right-most optimal path, which is what lets the linear-space
+ * engine reproduce it without the full matrix.
+ */
+class Alignment {
+    /** str1 token against a gap */
+    static final byte UP = 0;
+    /** str1 token against str2 token */
+    static final byte DIAG = 1;
+    /** gap against str2 token */
+    static final byte LEFT = 2;
+
+    final byte[] moves;
+    final int cost;
+
+    Alignment(byte[] moves, int cost) {
+        this.moves = moves;
+        this.cost = cost;
+    }
+}
@@ -0,0 +1,160 @@
+package algo;
+
+import java.util.Arrays;
+
+/**
+ * Banded alignment with band doubling (Ukkonen), for near-identical sequences.
+ * <p>
+ * Only cells with j - i in [min(0, n-m) - w, max(0, n-m) + w] are filled, everything else counts as unreachable.
+ * A path that leaves the band needs at least |n-m| + 2(w+1) gaps, so a banded cost below that is optimal,
+ * and then every optimal path lies inside the band and the traceback is the same as {@link FullMatrixAlignment}'s.
+ * Otherwise w is doubled. Filling costs O((m+n) * w) per pass.
+ * <p>
+ * Each pass leases its band from the {@link MemoryBudget}, so a narrow band doesn't hold the memory of the widest.
+ * A band's cost only falls as it widens, and slowly on inputs that are not near-identical: once the cost of a pass
+ * would need a band over maxCells to be proven optimal, the doubling stops there instead of filling ever wider bands
+ * that would most likely fail too.
+ */
+class BandedAlignment {
+    private static final int INITIAL_WIDTH = 16;
+    private static final int UNREACHABLE = Integer.MAX_VALUE / 2;
+
+    private final int[] str1;
+    private final int[] str2;
+    private final int gapPenalty;
+    private final int noMatchPenalty;
+
+    private int lo;
+    private int[][] band;
+
+    private BandedAlignment(int[] str1, int[] str2, int gapPenalty, int noMatchPenalty) {
+        this.str1 = str1;
+        this.str2 = str2;
+        this.gapPenalty = gapPenalty;
+        this.noMatchPenalty = noMatchPenalty;
+    }
+
+    /**
+     * The lower bound for paths outside the band needs positive gaps and no negative costs.
+     */
+    static boolean canAlign(int gapPenalty, int noMatchPenalty){
+        return gapPenalty > 0 && noMatchPenalty >= 0;
+    }
+
+    /**
+     * align with the bands leased from the global budget
+     */
+    static Alignment align(int[] str1, int[] str2, int gapPenalty, int noMatchPenalty, long maxCells){
+        return align(str1, str2, gapPenalty, noMatchPenalty, maxCells, MemoryBudget.global());
+    }
+
+    /**
+     * @param maxCells give up once a band would need more cells than this
+     * @param budget each band is leased from it while it's filled (and traced back)
+     * @return the alignment, or null if the band would grow past maxCells before the cost was proven optimal
+     */
+    @SuppressWarnings("try") // a lease is only held for its block, never read
+    static Alignment align(int[] str1, int[] str2, int gapPenalty, int noMatchPenalty, long maxCells, MemoryBudget budget){
+        BandedAlignment banded = new BandedAlignment(str1, str2, gapPenalty, noMatchPenalty);
+        int m = str1.length;
+        int n = str2.length;
+        int diff = Math.abs(n - m);
+
+        for (long w = INITIAL_WIDTH; ; w *= 2){
+            long lo = Math.min(0, n - m) - w;
+            long hi = Math.max(0, n - m) + w;
+            boolean wholeMatrix = lo <= -m && hi >= n;
+            if (wholeMatrix){
+                lo = -m;
+                hi = n;
+            }
+            if ((long) (m + 1) * (hi - lo + 1) > maxCells){
+                return null;
+            }
+
+            int width = (int) (hi - lo + 1);
+            int cost;
+            banded.band = null; // the last pass's band, before leasing the next one
+            try (MemoryBudget.Lease lease = budget.acquire((m + 1L) * width * Integer.BYTES)){
+                cost = banded.fill((int) lo, width);
+                if (wholeMatrix || cost < (long) gapPenalty * (diff + 2 * (w + 1))){
+                    return banded.traceback(cost);
+                }
+            }
+
+            // the narrowest band in which this cost would be proven optimal
+            long provingWidth = Math.max(0, (cost / gapPenalty - diff) / 2);
+            if ((long) (m + 1) * (diff + 2 * provingWidth + 1) > maxCells){
+                return null;
+            }
+        }
+    }
+
+    /**
+     * band[i][k] = A[i][i + lo + k]
+     * @return A[m][n]
+     */
+    private int fill(int lo, int width){
+        int m = str1.length;
+        int n = str2.length;
+        this.lo = lo;
+        this.band = new int[m+1][width];
+
+        for (int i=0; i <= m; i++){
+            Cancellation.check();
+            int[] row = band[i];
+            int[] prev = i > 0 ? band[i-1] : null;
+            int kFrom = Math.max(0, -i - lo);
+            int kTo = Math.min(width - 1, n - i - lo);
+            Arrays.fill(row, 0, Math.max(kFrom, 0), UNREACHABLE);
+            Arrays.fill(row, Math.min(kTo + 1, width), width, UNREACHABLE);
+
+            for (int k=kFrom; k <= kTo; k++){
+                int j = i + lo + k;
+                if (i == 0){
+                    row[k] = j * gapPenalty;
+                } else if (j == 0){
+                    row[k] = i * gapPenalty;
+                } else {
+                    int up = k + 1 < width ? prev[k+1] : UNREACHABLE;
+                    int left = k > 0 ? row[k-1] : UNREACHABLE;
+                    int match = str1[i-1] == str2[j-1] ? 0 : noMatchPenalty;
+                    row[k] = Math.min(Math.min(left, up) + gapPenalty, prev[k] + match);
+                }
+            }
+        }
+        return get(m, n);
+    }
+
+    private int get(int i, int j){
+        int k = j - i - lo;
+        return k < 0 || k >= band[i].length ? UNREACHABLE : band[i][k];
+    }
+
+    /**
+     * Same walk as {@link FullMatrixAlignment#traceback}, cells outside the band are unreachable.
+     */
+    private Alignment traceback(int cost){
+        int i = str1.length;
+        int j = str2.length;
+        byte[] moves = new byte[i + j];
+        int pos = moves.length;
+
+        while (i > 0 || j > 0) {
+            int cur = get(i, j);
+            if (i > 0 && cur == get(i - 1, j) + gapPenalty) {
+                moves[--pos] = Alignment.UP;
+                i--;
+            } else if (i > 0 && j > 0 && cur == get(i - 1, j - 1) + (str1[i - 1] == str2[j - 1] ? 0 : noMatchPenalty)) {
+                moves[--pos] = Alignment.DIAG;
+                i--;
+                j--;
+            } else {
+                moves[--pos] = Alignment.LEFT;
+                j--;
+            }
+        }
+
+        return new Alignment(Arrays.copyOfRange(moves, pos, moves.length), cost);
+    }
+}
@@ -0,0 +1,62 @@
+package algo;
+
+/**
+ * 0/1 knapsack over a single rolling row.
+ * Instead of the full (n+1) x (C+1) value table, only one take/skip bit per cell is kept for the reconstruction,
+ * i.e. about n*C bits instead of 32*n*C.
+ */
+class BitPackedKnapsack {
+
+    private BitPackedKnapsack() {
+    }
+
+    /**
+     * @return indices of the chosen items, ascending
+     */
+    static int[] solve(int[] values, int[] weights, int C){
+        int n = values.length;
+        int words = (C >>> 6) + 1;
+        int[] row = new int[C+1];
+        long[][] take = new long[n][words];
+
+        for (int item=0; item < n; item++){
+            Cancellation.check();
+            int w = weights[item];
+            int v = values[item];
+            long[] bits = take[item];
+            // descending, so row[c - w] still holds the previous item's value
+            for (int c=C; c >= w; c--){
+                int withItem = row[c - w] + v;
+                if (row[c] < withItem){
+                    row[c] = withItem;
+                    bits[c >>> 6] |= 1L << c;
+                }
+            }
+        }
+
+        return reconstruct(take, weights, C);
+    }
+
+    /**
+     * @param take take[item] has bit c set if the item is taken at capacity c
+     * @return indices of the chosen items, ascending
+     */
+    static int[] reconstruct(long[][] take, int[] weights, int C){
+        int n = take.length;
+        int c = C;
+        int count = 0;
+        int[] chosen = new int[n];
+        for (int item = n-1; item >= 0; item--){
+            if ((take[item][c >>> 6] & (1L << c)) != 0){
+                chosen[count++] = item;
+                c -= weights[item];
+            }
+        }
+
+        int[] items = new int[count];
+        for (int k=0; k < count; k++){
+            items[k] = chosen[count - 1 - k];
+        }
+        return items;
+    }
+}
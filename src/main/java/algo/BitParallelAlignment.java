@@ -0,0 +1,191 @@
+package algo;
+
+import java.util.Arrays;
+
+/**
+ * Bit-parallel alignment (Myers / Hyyro) for gapPenalty == noMatchPenalty, where the cost is gapPenalty times the
+ * edit distance.
+ * <p>
+ * str1 is the pattern, one bit per row, in 64-bit blocks. Each column of the matrix is computed as vertical deltas
+ * (Pv: +1, Mv: -1), one block at a time with the horizontal delta carried down from block to block.
+ * Pv/Mv of every column are kept (2 bits per cell), so the traceback can rebuild any cell as a prefix popcount.
+ */
+class BitParallelAlignment {
+    private final int[] str1;
+    private final int[] str2;
+    private final int blocks;
+    private final long[][] Pv;
+    private final long[][] Mv;
+
+    private BitParallelAlignment(int[] str1, int[] str2) {
+        this.str1 = str1;
+        this.str2 = str2;
+        this.blocks = (str1.length + 63) >>> 6;
+        this.Pv = new long[str2.length + 1][blocks];
+        this.Mv = new long[str2.length + 1][blocks];
+    }
+
+    static boolean canAlign(int gapPenalty, int noMatchPenalty){
+        return gapPenalty > 0 && gapPenalty == noMatchPenalty;
+    }
+
+    /**
+     * @return bytes of the delta vectors and the match masks
+     */
+    static long estimateBytes(int m, int n, int symbols){
+        long blocks = (m + 63) >>> 6;
+        return Long.BYTES * blocks * (2L * (n + 1) + Math.min(symbols, m));
+    }
+
+    static Alignment align(int[] str1, int[] str2, int symbols, int gapPenalty){
+        BitParallelAlignment bitParallel = new BitParallelAlignment(str1, str2);
+        bitParallel.fill(symbols);
+        return bitParallel.traceback(gapPenalty);
+    }
+
+    private void fill(int symbols){
+        int m = str1.length;
+        int n = str2.length;
+
+        // match masks, only for symbols that occur in str1
+        int[] symbolIndex = new int[symbols];
+        Arrays.fill(symbolIndex, -1);
+        int distinct = 0;
+        for (int s : str1){
+            if (symbolIndex[s] < 0){
+                symbolIndex[s] = distinct++;
+            }
+        }
+        long[][] Peq = new long[distinct + 1][blocks]; // last one: no match
+        for (int i=0; i < m; i++){
+            Peq[symbolIndex[str1[i]]][i >>> 6] |= 1L << i;
+        }
+
+        // column 0: A[i][0] = i
+        Arrays.fill(Pv[0], -1L);
+
+        if (blocks == 1){
+            long pv = -1L;
+            long mv = 0;
+            for (int j=1; j <= n; j++){
+                if ((j & 1023) == 0){
+                    Cancellation.check();
+                }
+                int s = symbolIndex[str2[j-1]];
+                long eq = Peq[s < 0 ? distinct : s][0];
+
+                long xv = eq | mv;
+                long xh = (((eq & pv) + pv) ^ pv) | eq;
+                long ph = mv | ~(xh | pv);
+                long mh = pv & xh;
+                ph = (ph << 1) | 1L; // A[0][j] = j, so +1 enters from the top
+                mh <<= 1;
+                pv = mh | ~(xv | ph);
+                mv = ph & xv;
+
+                Pv[j][0] = pv;
+                Mv[j][0] = mv;
+            }
+            return;
+        }
+
+        for (int j=1; j <= n; j++){
+            Cancellation.check();
+            int s = symbolIndex[str2[j-1]];
+            long[] eqs = Peq[s < 0 ? distinct : s];
+            long[] prevPv = Pv[j-1];
+            long[] prevMv = Mv[j-1];
+            long[] pvs = Pv[j];
+            long[] mvs = Mv[j];
+
+            int hin = 1;
+            for (int b=0; b < blocks; b++){
+                long pv = prevPv[b];
+                long mv = prevMv[b];
+                long eq = eqs[b];
+                long hinIsNeg = hin < 0 ? 1L : 0L;
+
+                long xv = eq | mv;
+                eq |= hinIsNeg;
+                long xh = (((eq & pv) + pv) ^ pv) | eq;
+                long ph = mv | ~(xh | pv);
+                long mh = pv & xh;
+
+                int hout = (int) (ph >>> 63) - (int) (mh >>> 63);
+
+                ph <<= 1;
+                mh <<= 1;
+                mh |= hinIsNeg;
+                ph |= hin > 0 ? 1L : 0L;
+                pvs[b] = mh | ~(xv | ph);
+                mvs[b] = ph & xv;
+
+                hin = hout;
+            }
+        }
+    }
+
+    /**
+     * Same walk as {@link FullMatrixAlignment#traceback}, on unit costs.
+     */
+    private Alignment traceback(int gapPenalty){
+        int i = str1.length;
+        int j = str2.length;
+        byte[] moves = new byte[i + j];
+        int pos = moves.length;
+
+        int cost = value(i, j);
+        int cur = cost;
+        int left = j > 0 ? value(i, j-1) : 0;
+        while (i > 0 || j > 0) {
+            if (i > 0 && delta(i, j) == 1) {
+                moves[--pos] = Alignment.UP;
+                cur--;
+                if (j > 0){
+                    left -= delta(i, j-1);
+                }
+                i--;
+            } else if (i > 0 && j > 0 && cur == left - delta(i, j-1) + (str1[i-1] == str2[j-1] ? 0 : 1)) {
+                moves[--pos] = Alignment.DIAG;
+                cur = left - delta(i, j-1);
+                i--;
+                j--;
+                left = j > 0 ? value(i, j-1) : 0;
+            } else {
+                moves[--pos] = Alignment.LEFT;
+                cur = left;
+                j--;
+                left = j > 0 ? value(i, j-1) : 0;
+            }
+        }
+
+        return new Alignment(Arrays.copyOfRange(moves, pos, moves.length), cost * gapPenalty);
+    }
+
+    /**
+     * @return A[i][j] - A[i-1][j]
+     */
+    private int delta(int i, int j){
+        int b = (i-1) >>> 6;
+        long bit = 1L << (i-1);
+        return (Pv[j][b] & bit) != 0 ? 1 : (Mv[j][b] & bit) != 0 ? -1 : 0;
+    }
+
+    /**
+     * @return A[i][j], in unit costs
+     */
+    private int value(int i, int j){
+        long[] pvs = Pv[j];
+        long[] mvs = Mv[j];
+        int value = j;
+        int full = i >>> 6;
+        for (int b=0; b < full; b++){
+            value += Long.bitCount(pvs[b]) - Long.bitCount(mvs[b]);
+        }
+        if ((i & 63) != 0){
+            long mask = (1L << i) - 1;
+            value += Long.bitCount(pvs[full] & mask) - Long.bitCount(mvs[full] & mask);
+        }
+        return value;
+    }
+}
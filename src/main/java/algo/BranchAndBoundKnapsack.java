@@ -0,0 +1,116 @@
+package algo;
+
+import java.util.Comparator;
+import java.util.stream.IntStream;
+
+/**
+ * 0/1 knapsack by branch and bound, for few items and a capacity too large for the DP engines.
+ * <p>
+ * Items are searched in order of value density, pruned by the fractional (LP) bound.
+ * To get the same items as {@link BitPackedKnapsack}, the last item is skipped whenever the items before it
+ * still reach the remaining optimum, and so on down to the first item: one bounded search per item.
+ */
+class BranchAndBoundKnapsack {
+    private final int[] values;
+    private final int[] weights;
+    /** items worth taking (value > 0), by density, highest first */
+    private final int[] order;
+
+    private int items;
+    private long best;
+    private long nodes;
+
+    private BranchAndBoundKnapsack(int[] values, int[] weights) {
+        this.values = values;
+        this.weights = weights;
+        this.order = IntStream.range(0, values.length)
+                .filter(item -> values[item] > 0)
+                .boxed()
+                .sorted(Comparator.comparingDouble(item -> -(double) values[item] / weights[item]))
+                .mapToInt(Integer::intValue)
+                .toArray();
+    }
+
+    /**
+     * @return indices of the chosen items, ascending
+     */
+    static int[] solve(int[] values, int[] weights, int C){
+        BranchAndBoundKnapsack bb = new BranchAndBoundKnapsack(values, weights);
+        int n = values.length;
+        long target = bb.maximize(n, C, Long.MAX_VALUE);
+
+        long c = C;
+        int count = 0;
+        int[] chosen = new int[n];
+        for (int item = n-1; item >= 0 && target > 0; item--){
+            if (values[item] <= 0 || weights[item] > c){
+                continue;
+            }
+            if (bb.maximize(item, c, target) < target){
+                chosen[count++] = item;
+                c -= weights[item];
+                target -= values[item];
+            }
+        }
+
+        int[] result = new int[count];
+        for (int k=0; k < count; k++){
+            result[k] = chosen[count - 1 - k];
+        }
+        return result;
+    }
+
+    /**
+     * @param items only items with index < items are used
+     * @param stopAt stop searching once this value is reached
+     * @return best value for capacity c, or a value >= stopAt
+     */
+    private long maximize(int items, long c, long stopAt){
+        this.items = items;
+        this.best = 0;
+        search(0, c, 0, stopAt);
+        return best;
+    }
+
+    private void search(int pos, long capacity, long value, long stopAt){
+        if ((++nodes & 0xFFF) == 0){
+            Cancellation.check();
+        }
+        if (value > best){
+            best = value;
+        }
+        if (best >= stopAt){
+            return;
+        }
+
+        while (pos < order.length && (order[pos] >= items || weights[order[pos]] > capacity)){
+            pos++;
+        }
+        if (pos == order.length || bound(pos, capacity, value) <= best){
+            return;
+        }
+
+        int item = order[pos];
+        search(pos + 1, capacity - weights[item], value + values[item], stopAt);
+        search(pos + 1, capacity, value, stopAt);
+    }
+
+    /**
+     * Greedy by density, with the first item that doesn't fit taken fractionally.
+     */
+    private long bound(int pos, long capacity, long value){
+        for (; pos < order.length; pos++){
+            int item = order[pos];
+            if (item >= items){
+                continue;
+            }
+            if (weights[item] <= capacity){
+                capacity -= weights[item];
+                value += values[item];
+            } else {
+                return value + values[item] * capacity / weights[item];
+            }
+        }
+        return value;
+    }
+}
@@ -0,0 +1,27 @@
+package algo;
+
+import java.util.concurrent.CancellationException;
+
+/**
+ * Cooperative cancellation of the solvers. A task is cancelled by interrupting the thread that runs it
+ * (Future.cancel(true)), and the solver loops check for it about once per row, item or block of work.
+ * The interrupt status is left set.
+ */
+final class Cancellation {
+
+    private Cancellation() {
+    }
+
+    static void check(){
+        check(Thread.currentThread());
+    }
+
+    /**
+     * @param owner the thread that runs the task (for work done on other threads, e.g. a ForkJoinPool)
+     */
+    static void check(Thread owner){
+        if (owner.isInterrupted()){
+            throw new CancellationException("solver interrupted");
+        }
+    }
+}
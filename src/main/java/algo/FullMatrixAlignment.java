@@ -0,0 +1,64 @@
+package algo;
+
+import java.util.Arrays;
+
+/**
+ * Sequence alignment over the full (m+1) x (n+1) matrix.
+ */
+class FullMatrixAlignment {
+
+    private FullMatrixAlignment() {
+    }
+
+    static Alignment align(int[] str1, int[] str2, int gapPenalty, int noMatchPenalty){
+        int m = str1.length;
+        int n = str2.length;
+
+        int[][] A = new int[m+1][n+1];
+        for (int i=0; i <= m; i++){
+            A[i][0] = i * gapPenalty;
+        }
+        for (int i=0; i <= n; i++){
+            A[0][i] = i * gapPenalty;
+        }
+
+        for (int i=1; i <= m; i++){
+            Cancellation.check();
+            int c1 = str1[i-1];
+            for (int j=1; j <= n; j++){
+                int match = c1 == str2[j-1] ? 0 : noMatchPenalty;
+                A[i][j] = Math.min(A[i][j-1] + gapPenalty, A[i-1][j] + gapPenalty);
+                A[i][j] = Math.min(A[i-1][j-1] + match, A[i][j]);
+            }
+        }
+
+        return traceback(A, str1, str2, gapPenalty, noMatchPenalty);
+    }
+
+    /**
+     * Walks back from (m,n), taking the first valid move in the order UP, DIAG, LEFT.
+     */
+    static Alignment traceback(int[][] A, int[] str1, int[] str2, int gapPenalty, int noMatchPenalty){
+        int i = str1.length;
+        int j = str2.length;
+        byte[] moves = new byte[i + j];
+        int pos = moves.length;
+
+        while (i > 0 || j > 0) {
+            if (i > 0 && A[i][j] == A[i - 1][j] + gapPenalty) {
+                moves[--pos] = Alignment.UP;
+                i--;
+            } else if (i > 0 && j > 0
+                    && A[i][j] == A[i - 1][j - 1] + (str1[i - 1] == str2[j - 1] ? 0 : noMatchPenalty)) {
+                moves[--pos] = Alignment.DIAG;
+                i--;
+                j--;
+            } else {
+                moves[--pos] = Alignment.LEFT;
+                j--;
+            }
+        }
+
+        return new Alignment(Arrays.copyOfRange(moves, pos, moves.length), A[str1.length][str2.length]);
+    }
+}
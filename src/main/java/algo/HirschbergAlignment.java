@@ -0,0 +1,113 @@
+package algo;
+
+import java.util.Arrays;
+
+/**
+ * Hirschberg's divide and conquer alignment, O(m+n) memory.
+ * <p>
+ * Each step splits str1 in the middle row and picks the right-most column where the forward and backward
+ * costs add up to the optimum. The full-matrix traceback passes through exactly that cell, so both halves
+ * (solved recursively, down to one row) give the same path as {@link FullMatrixAlignment}.
+ */
+class HirschbergAlignment {
+    private final int[] str1;
+    private final int[] str2;
+    private final int gapPenalty;
+    private final int noMatchPenalty;
+
+    private final int[] forward;
+    private final int[] backward;
+    private final byte[] moves;
+    private int pos = 0;
+
+    private HirschbergAlignment(int[] str1, int[] str2, int gapPenalty, int noMatchPenalty) {
+        this.str1 = str1;
+        this.str2 = str2;
+        this.gapPenalty = gapPenalty;
+        this.noMatchPenalty = noMatchPenalty;
+        this.forward = new int[str2.length + 1];
+        this.backward = new int[str2.length + 1];
+        this.moves = new byte[str1.length + str2.length];
+    }
+
+    static Alignment align(int[] str1, int[] str2, int gapPenalty, int noMatchPenalty){
+        HirschbergAlignment hirschberg = new HirschbergAlignment(str1, str2, gapPenalty, noMatchPenalty);
+        int cost = hirschberg.align(0, str1.length, 0, str2.length);
+        return new Alignment(Arrays.copyOf(hirschberg.moves, hirschberg.pos), cost);
+    }
+
+    /**
+     * Appends the moves aligning str1[i0, i1) with str2[j0, j1).
+     * @return cost of that alignment
+     */
+    private int align(int i0, int i1, int j0, int j1){
+        if (i1 - i0 <= 1 || j0 == j1){
+            Alignment small = FullMatrixAlignment.align(Arrays.copyOfRange(str1, i0, i1), Arrays.copyOfRange(str2, j0, j1), gapPenalty, noMatchPenalty);
+            System.arraycopy(small.moves, 0, moves, pos, small.moves.length);
+            pos += small.moves.length;
+            return small.cost;
+        }
+
+        int mid = (i0 + i1) >>> 1;
+        forwardRow(i0, mid, j0, j1);
+        backwardRow(mid, i1, j0, j1);
+
+        int split = j0;
+        int best = Integer.MAX_VALUE;
+        for (int k=j0; k <= j1; k++){
+            int cost = forward[k - j0] + backward[k - j0];
+            if (cost <= best){
+                best = cost;
+                split = k;
+            }
+        }
+
+        align(i0, mid, j0, split);
+        align(mid, i1, split, j1);
+        return best;
+    }
+
+    /**
+     * forward[k - j0] = cost of aligning str1[i0, i1) with str2[j0, k)
+     */
+    private void forwardRow(int i0, int i1, int j0, int j1){
+        int n = j1 - j0;
+        for (int k=0; k <= n; k++){
+            forward[k] = k * gapPenalty;
+        }
+        for (int i=i0; i < i1; i++){
+            Cancellation.check();
+            int c1 = str1[i];
+            int diag = forward[0];
+            forward[0] += gapPenalty;
+            for (int k=1; k <= n; k++){
+                int match = c1 == str2[j0 + k - 1] ? 0 : noMatchPenalty;
+                int up = forward[k];
+                forward[k] = Math.min(Math.min(forward[k-1], up) + gapPenalty, diag + match);
+                diag = up;
+            }
+        }
+    }
+
+    /**
+     * backward[k - j0] = cost of aligning str1[i0, i1) with str2[k, j1)
+     */
+    private void backwardRow(int i0, int i1, int j0, int j1){
+        int n = j1 - j0;
+        for (int k=n; k >= 0; k--){
+            backward[k] = (n - k) * gapPenalty;
+        }
+        for (int i=i1-1; i >= i0; i--){
+            Cancellation.check();
+            int c1 = str1[i];
+            int diag = backward[n];
+            backward[n] += gapPenalty;
+            for (int k=n-1; k >= 0; k--){
+                int match = c1 == str2[j0 + k] ? 0 : noMatchPenalty;
+                int down = backward[k];
+                backward[k] = Math.min(Math.min(backward[k+1], down) + gapPenalty, diag + match);
+                diag = down;
+            }
+        }
+    }
+}
@@ -1,92 +1,150 @@
 package algo;
 
-import com.google.common.base.Joiner;
+import com.google.common.primitives.Ints;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.util.ArrayList;
-import java.util.Collections;
-import java.util.List;
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
 
 public class Knapsack implements AlgoSolver{
     private static final Logger logger = LoggerFactory.getLogger(Knapsack.class);
+    private static final long MAX_STATES = Long.getLong("algo.knapsack.maxStates", 16L * 1024 * 1024);
+    private static final long DENSE_CELL_LIMIT = Long.getLong("algo.knapsack.denseCellLimit", 1L << 30);
+    private static final int BRANCH_AND_BOUND_MAX_ITEMS = Integer.getInteger("algo.knapsack.branchAndBoundMaxItems", 40);
+    private static final int PARALLEL_ROW_THRESHOLD = Integer.getInteger("algo.knapsack.parallelRowThreshold", 64 * 1024);
 
     private String filename;
-    private List<Integer> values;
-    private List<Integer> weights;
+    private int[] values;
+    private int[] weights;
     private int C;
+    /** engine of the last solve, for the {@link SolveEvent} */
+    private String engine;
 
     public Knapsack() {
     }
 
     /**
+     * All engines return the same items: walking from the last item to the first, an item is taken only if
+     * the items before it can't reach the same value without it.
      * @return item indices
      */
-    public String solve(List<String> data, String filename){
+    @Override
+    public String solve(ProblemReader reader, String filename){
         logger.info("solving file <{}>", filename);
-        this.filename = filename;
-
-        boolean success = parse(data);
+        boolean success = parse(reader, filename);
         if (!success){
             return "";
         }
+        return solveParsed();
+    }
 
-        int n = values.size();
-        int[][] A = new int[n+1][C+1];
-
-        for (int i=1; i <= n; i++){
-            int item = i-1;
-            for (int c=1; c <= C; c++){
-                int withoutItem = A[i - 1][c];
-                if (c - weights.get(item) < 0){
-                    A[i][c] = withoutItem;
-                } else {
-                    int withItem = A[i - 1][c - weights.get(item)] + values.get(item);
-                    A[i][c] = Math.max(withItem, withoutItem);
+    @Override
+    public String solveParsed(){
+        SolveEvent event = new SolveEvent();
+        event.begin();
+        int[] items = solve();
+        SolverCounters.solved((long) values.length * (C + 1));
+        if (event.shouldCommit()){
+            event.algorithm = "Knapsack";
+            event.file = filename;
+            event.rows = values.length;
+            event.columns = C + 1L;
+            event.engine = engine;
+            event.commit();
+        }
+
+        logger.info("finished solving file <{}>", filename);
+        return Ints.join(" ", items);
+    }
+
+    /**
+     * Each engine first acquires the memory it will allocate from the {@link MemoryBudget}.
+     */
+    @SuppressWarnings("try") // a lease is only held for its block, never read
+    private int[] solve(){
+        int n = values.length;
+        long denseCells = (long) n * (C + 1);
+        long rowBytes = (C + 1L) * Integer.BYTES;
+        long takeBytes = (long) n * ((C >>> 6) + 1) * Long.BYTES;
+
+        long states = ParetoKnapsack.estimateStates(values, weights, C);
+        if (states < denseCells){
+            long maxStates = Math.min(denseCells, MAX_STATES);
+            // a weight and a value per state
+            try (MemoryBudget.Lease lease = MemoryBudget.global().acquire(Math.min(states, maxStates) * (Integer.BYTES + Long.BYTES))){
+                int[] items = ParetoKnapsack.solve(values, weights, C, maxStates);
+                if (items != null){
+                    engine = "pareto";
+                    logger.debug("file {}: n = {}, C = {}, used sparse Pareto frontiers", filename, n, C);
+                    return items;
                 }
             }
         }
 
-        int c = C;
-        List<Integer> items = new ArrayList<>();
-        for (int i = n; i >= 1; i--){
-            int item = i - 1;
-            if (c - weights.get(item) < 0){
-                continue;
-            }
-            if (A[i-1][c] < A[i-1][c - weights.get(item)] + values.get(item)){
-                items.add(item);
-                c -= weights.get(item);
+        if (n <= BRANCH_AND_BOUND_MAX_ITEMS && denseCells > DENSE_CELL_LIMIT){
+            logger.debug("file {}: n = {}, C = {}, using branch and bound", filename, n, C);
+            engine = "branch-and-bound";
+            return BranchAndBoundKnapsack.solve(values, weights, C);
+        }
+
+        if (C + 1L >= PARALLEL_ROW_THRESHOLD){
+            try (MemoryBudget.Lease lease = MemoryBudget.global().acquire(takeBytes + 2 * rowBytes)){
+                logger.debug("file {}: n = {}, C = {}, using parallel rows", filename, n, C);
+                engine = "parallel-rows";
+                return ParallelKnapsack.solve(values, weights, C, ForkJoinPool.commonPool());
             }
         }
+        try (MemoryBudget.Lease lease = MemoryBudget.global().acquire(takeBytes + rowBytes)){
+            engine = "bit-packed";
+            return BitPackedKnapsack.solve(values, weights, C);
+        }
+    }
 
-        Collections.reverse(items);
-        logger.info("finished solving file <{}>", filename);
-        return Joiner.on(" ").join(items);
+    /**
+     * @return n * (C+1)
+     */
+    @Override
+    public long estimateCost(ProblemReader reader){
+        int n = reader.readTokenCount();
+        reader.skipLine();
+        return (long) n * (Math.max(reader.readInt(), 0) + 1L);
     }
 
     /**
-     * @param data format: Knapsack, [values], [weights], [C]. e.g:
+     * @param reader format: Knapsack, [values], [weights], [C]. e.g:
      *                 Knapsack
      *                 1 5 6
      *                 2 4 5
      *                 7
      */
-    public boolean parse(List<String> data){
+    @Override
+    public boolean parse(ProblemReader reader){
         try {
-            values = Util.splitBySpacesToIntegers(data, 1);
-            weights = Util.splitBySpacesToIntegers(data, 2);
-            C = Util.getInt(data, 3);
+            values = reader.readInts();
+            weights = reader.readInts();
+            C = reader.readInt();
         } catch (Exception e){
             logger.error("file {}: parsing error. {}", filename, e);
             return false;
         }
 
-        if (values.size() != weights.size()){
-            logger.error("file {}: values.size() != weights.size() [{} != {}]", filename, values.size(), weights.size());
+        if (values.length != weights.length){
+            logger.error("file {}: values.length != weights.length [{} != {}]", filename, values.length, weights.length);
+            return false;
+        }
+
+        if (C < 0 || Arrays.stream(weights).anyMatch(w -> w < 0)){
+            logger.error("file {}: capacity and weights must be non-negative", filename);
             return false;
         }
 
         return true;
     }
+
+    @Override
+    public boolean parse(ProblemReader reader, String filename){
+        this.filename = filename;
+        return parse(reader);
+    }
 }
@@ -0,0 +1,82 @@
+package algo;
+
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Admission of the solvers by memory: before allocating its tables, a solver acquires the bytes it predicts
+ * and waits while other solvers hold too much of the budget. Shared by all solvers ({@link #global()}).
+ * <p>
+ * Counted in KiB, so a fair Semaphore covers any heap. A request larger than the whole budget is admitted alone.
+ */
+public class MemoryBudget {
+    private static final MemoryBudget global = new MemoryBudget(
+            Long.getLong("algo.memoryBudget", Runtime.getRuntime().maxMemory() / 4 * 3));
+
+    private final int totalKiB;
+    private final Semaphore permits;
+    private final LongAdder leasedKiB = new LongAdder();
+
+    /**
+     * @param bytes total budget
+     */
+    public MemoryBudget(long bytes) {
+        this.totalKiB = (int) Math.max(1, Math.min(bytes >>> 10, Integer.MAX_VALUE));
+        this.permits = new Semaphore(totalKiB, true);
+    }
+
+    /**
+     * algo.memoryBudget in bytes (default: 3/4 of the max heap)
+     */
+    public static MemoryBudget global(){
+        return global;
+    }
+
+    /**
+     * Blocks until the bytes are available.
+     * @throws CancellationException if the thread is interrupted while waiting
+     */
+    public Lease acquire(long bytes){
+        int kiB = (int) Math.min((bytes + 1023) >>> 10, totalKiB);
+        try {
+            permits.acquire(kiB);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new CancellationException("interrupted waiting for memory");
+        }
+        leasedKiB.add(kiB);
+        return new Lease(kiB);
+    }
+
+    /**
+     * @return bytes leased so far, in total (requests over the budget count as the whole budget)
+     */
+    public long leasedBytes(){
+        return leasedKiB.sum() << 10;
+    }
+
+    public long availableBytes(){
+        return (long) permits.availablePermits() << 10;
+    }
+
+    public long totalBytes(){
+        return (long) totalKiB << 10;
+    }
+
+    public class Lease implements AutoCloseable {
+        private int kiB;
+
+        private Lease(int kiB) {
+            this.kiB = kiB;
+        }
+
+        @Override
+        public void close() {
+            if (kiB > 0){
+                permits.release(kiB);
+                kiB = 0;
+            }
+        }
+    }
+}
@@ -0,0 +1,238 @@
+package algo;
+
+import java.util.Arrays;
+import java.util.concurrent.CountedCompleter;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+/**
+ * {@link HirschbergAlignment} on a ForkJoinPool, O(m+n) memory.
+ * <p>
+ * The forward and backward cost rows of a split are filled at the same time, each in wavefront tiles like
+ * {@link WavefrontAlignment} but keeping only the tile edges: a row across the tiles' bottoms and a column per tile row.
+ * The two halves of a split are then aligned in parallel, each into its own moves, which are concatenated.
+ * Splits of at most sequentialCells cells are aligned by {@link HirschbergAlignment}. The costs are exact whatever
+ * the order they are computed in, so the splits, and the path, are the same as {@link FullMatrixAlignment}'s.
+ */
+class ParallelHirschbergAlignment {
+    private final int[] str1;
+    private final int[] str2;
+    private final int gapPenalty;
+    private final int noMatchPenalty;
+    private final int tileSize;
+    private final long sequentialCells;
+    /** the thread that cancels by being interrupted */
+    private final Thread owner = Thread.currentThread();
+
+    private ParallelHirschbergAlignment(int[] str1, int[] str2, int gapPenalty, int noMatchPenalty, int tileSize) {
+        this.str1 = str1;
+        this.str2 = str2;
+        this.gapPenalty = gapPenalty;
+        this.noMatchPenalty = noMatchPenalty;
+        this.tileSize = tileSize;
+        this.sequentialCells = 16L * tileSize * tileSize;
+    }
+
+    static Alignment align(int[] str1, int[] str2, int gapPenalty, int noMatchPenalty, int tileSize, ForkJoinPool pool){
+        ParallelHirschbergAlignment hirschberg = new ParallelHirschbergAlignment(str1, str2, gapPenalty, noMatchPenalty, tileSize);
+        return pool.invoke(hirschberg.new Split(0, str1.length, 0, str2.length));
+    }
+
+    /**
+     * Aligns str1[i0, i1) with str2[j0, j1).
+     */
+    @SuppressWarnings("serial") // fork-join tasks are never serialized
+    private class Split extends RecursiveTask<Alignment> {
+        private final int i0;
+        private final int i1;
+        private final int j0;
+        private final int j1;
+
+        Split(int i0, int i1, int j0, int j1) {
+            this.i0 = i0;
+            this.i1 = i1;
+            this.j0 = j0;
+            this.j1 = j1;
+        }
+
+        @Override
+        protected Alignment compute() {
+            Cancellation.check(owner);
+            if ((long) (i1 - i0) * (j1 - j0) <= sequentialCells){
+                return HirschbergAlignment.align(Arrays.copyOfRange(str1, i0, i1), Arrays.copyOfRange(str2, j0, j1),
+                        gapPenalty, noMatchPenalty);
+            }
+
+            int mid = (i0 + i1) >>> 1;
+            int[] forward = new int[j1 - j0 + 1];
+            int[] backward = new int[j1 - j0 + 1];
+            CostRow backwardRow = new CostRow(backward, mid, i1, j0, j1, true);
+            backwardRow.fork();
+            new CostRow(forward, i0, mid, j0, j1, false).invoke();
+            backwardRow.join();
+
+            int split = j0;
+            int best = Integer.MAX_VALUE;
+            for (int k=j0; k <= j1; k++){
+                int cost = forward[k - j0] + backward[k - j0];
+                if (cost <= best){
+                    best = cost;
+                    split = k;
+                }
+            }
+
+            Split top = new Split(i0, mid, j0, split);
+            top.fork();
+            Alignment bottom = new Split(mid, i1, split, j1).compute();
+            Alignment first = top.join();
+            byte[] moves = Arrays.copyOf(first.moves, first.moves.length + bottom.moves.length);
+            System.arraycopy(bottom.moves, 0, moves, first.moves.length, bottom.moves.length);
+            return new Alignment(moves, best);
+        }
+    }
+
+    /**
+     * Fills row with the costs of aligning str1[i0, i1) with str2[j0, k) (forward), or with str2[k, j1) (backward,
+     * i.e. the forward costs of both reversed), row[k - j0] for each k. Tile (ti, tj) waits for the tiles above and
+     * to its left.
+     */
+    @SuppressWarnings("serial") // fork-join tasks are never serialized
+    private class CostRow extends CountedCompleter<Void> {
+        private final int[] row;
+        /** str1[i0, i1) and str2[j0, j1), reversed for backward */
+        private final int[] rowTokens;
+        private final int[] columnTokens;
+        private final int rows;
+        private final int columns;
+        private final boolean backward;
+        private final int tileRows;
+        private final int tileCols;
+        /** the column left of each tile row's next tile, top boundary first */
+        private final int[][] left;
+        private final AtomicIntegerArray pendingDependencies;
+
+        CostRow(int[] row, int i0, int i1, int j0, int j1, boolean backward) {
+            this.row = row;
+            this.rowTokens = backward ? reversed(str1, i0, i1) : Arrays.copyOfRange(str1, i0, i1);
+            this.columnTokens = backward ? reversed(str2, j0, j1) : Arrays.copyOfRange(str2, j0, j1);
+            this.rows = i1 - i0;
+            this.columns = j1 - j0;
+            this.backward = backward;
+            this.tileRows = (rows + tileSize - 1) / tileSize;
+            this.tileCols = (columns + tileSize - 1) / tileSize;
+            this.left = new int[tileRows][];
+            this.pendingDependencies = new AtomicIntegerArray(tileRows * tileCols);
+        }
+
+        @Override
+        public void compute() {
+            // row holds the top boundary, and then the bottom of the tiles filled so far
+            for (int k=0; k <= columns; k++){
+                row[k] = k * gapPenalty;
+            }
+            for (int ti=0; ti < tileRows; ti++){
+                int height = Math.min(tileSize, rows - ti * tileSize);
+                left[ti] = new int[height + 1];
+                for (int r=0; r <= height; r++){
+                    left[ti][r] = (ti * tileSize + r) * gapPenalty;
+                }
+                for (int tj=0; tj < tileCols; tj++){
+                    pendingDependencies.set(ti * tileCols + tj, (ti > 0 ? 1 : 0) + (tj > 0 ? 1 : 0));
+                }
+            }
+            if (tileRows == 0 || tileCols == 0){
+                row[0] = rows * gapPenalty;
+            } else {
+                addToPendingCount(1);
+                new Tile(this, 0, 0).fork();
+            }
+            tryComplete();
+        }
+
+        /**
+         * Backward costs were filled from the end, so row[x] is for k = j1 - x: turned around here.
+         */
+        @Override
+        public void onCompletion(CountedCompleter<?> caller) {
+            if (backward){
+                for (int a=0, b=columns; a < b; a++, b--){
+                    int swap = row[a];
+                    row[a] = row[b];
+                    row[b] = swap;
+                }
+            }
+        }
+
+        @SuppressWarnings("serial") // fork-join tasks are never serialized
+        private class Tile extends CountedCompleter<Void> {
+            private final int ti;
+            private final int tj;
+
+            Tile(CountedCompleter<?> root, int ti, int tj) {
+                super(root);
+                this.ti = ti;
+                this.tj = tj;
+            }
+
+            @Override
+            public void compute() {
+                fillTile(ti, tj);
+
+                CountedCompleter<?> root = getCompleter();
+                if (ti + 1 < tileRows && pendingDependencies.decrementAndGet((ti + 1) * tileCols + tj) == 0){
+                    root.addToPendingCount(1);
+                    new Tile(root, ti + 1, tj).fork();
+                }
+                if (tj + 1 < tileCols && pendingDependencies.decrementAndGet(ti * tileCols + tj + 1) == 0){
+                    root.addToPendingCount(1);
+                    new Tile(root, ti, tj + 1).fork();
+                }
+                tryComplete();
+            }
+        }
+
+        /**
+         * Reads the tile's top edge from row and its left edge from left[ti], and writes its bottom edge to row and
+         * its right edge to left[ti], for the tiles below and to the right.
+         */
+        private void fillTile(int ti, int tj){
+            Cancellation.check(owner);
+            int rStart = ti * tileSize;
+            int height = left[ti].length - 1;
+            int kStart = tj * tileSize;
+            int width = Math.min(tileSize, columns - kStart);
+            int[] edge = left[ti];
+
+            int[] cells = new int[width + 1];
+            cells[0] = edge[0];
+            System.arraycopy(row, kStart + 1, cells, 1, width);
+            int topRight = row[kStart + width];
+            for (int r=1; r <= height; r++){
+                int c1 = rowTokens[rStart + r - 1];
+                int diag = cells[0];
+                cells[0] = edge[r];
+                for (int x=1; x <= width; x++){
+                    int match = c1 == columnTokens[kStart + x - 1] ? 0 : noMatchPenalty;
+                    int up = cells[x];
+                    cells[x] = Math.min(Math.min(cells[x-1], up) + gapPenalty, diag + match);
+                    diag = up;
+                }
+                edge[r] = cells[width];
+            }
+            edge[0] = topRight;
+            System.arraycopy(cells, 1, row, kStart + 1, width);
+            if (tj == 0){
+                row[0] = cells[0];
+            }
+        }
+    }
+
+    private static int[] reversed(int[] str, int from, int to){
+        int[] reversed = new int[to - from];
+        for (int i=0; i < reversed.length; i++){
+            reversed[i] = str[to - 1 - i];
+        }
+        return reversed;
+    }
+}
@@ -0,0 +1,86 @@
+package algo;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * {@link BitPackedKnapsack} with each item row computed in parallel.
+ * <p>
+ * A cell only depends on the previous row, so two rows are kept (instead of one updated in place) and the capacity
+ * range is split into chunks on a ForkJoinPool. Chunks start at multiples of 64, so no two chunks write to the same
+ * word of take bits.
+ */
+class ParallelKnapsack {
+    private static final int CHUNK_SIZE = 16 * 1024;
+
+    private ParallelKnapsack() {
+    }
+
+    /**
+     * @return indices of the chosen items, ascending
+     */
+    static int[] solve(int[] values, int[] weights, int C, ForkJoinPool pool){
+        int n = values.length;
+        int words = (C >>> 6) + 1;
+        int[] prev = new int[C+1];
+        int[] row = new int[C+1];
+        long[][] take = new long[n][words];
+
+        for (int item=0; item < n; item++){
+            Cancellation.check();
+            pool.invoke(new Chunk(prev, row, take[item], weights[item], values[item], 0, C + 1));
+            int[] tmp = prev;
+            prev = row;
+            row = tmp;
+        }
+
+        return BitPackedKnapsack.reconstruct(take, weights, C);
+    }
+
+    @SuppressWarnings("serial") // fork-join tasks are never serialized
+    private static class Chunk extends RecursiveAction {
+        private final int[] prev;
+        private final int[] row;
+        private final long[] bits;
+        private final int w;
+        private final int v;
+        private final int from;
+        private final int to;
+
+        Chunk(int[] prev, int[] row, long[] bits, int w, int v, int from, int to) {
+            this.prev = prev;
+            this.row = row;
+            this.bits = bits;
+            this.w = w;
+            this.v = v;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= CHUNK_SIZE){
+                fill();
+                return;
+            }
+            int mid = ((from + to) >>> 1) & ~63;
+            invokeAll(new Chunk(prev, row, bits, w, v, from, mid),
+                    new Chunk(prev, row, bits, w, v, mid, to));
+        }
+
+        private void fill(){
+            int split = Math.max(from, Math.min(w, to));
+            System.arraycopy(prev, from, row, from, split - from);
+            for (int c=split; c < to; c++){
+                int withoutItem = prev[c];
+                int withItem = prev[c - w] + v;
+                if (withoutItem < withItem){
+                    row[c] = withItem;
+                    bits[c >>> 6] |= 1L << c;
+                } else {
+                    row[c] = withoutItem;
+                }
+            }
+        }
+    }
+}
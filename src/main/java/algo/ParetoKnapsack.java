@@ -0,0 +1,123 @@
+package algo;
+
+import java.util.Arrays;
+
+/**
+ * 0/1 knapsack over sparse Pareto frontiers, for capacities too large for a row of C+1 cells.
+ * <p>
+ * The frontier after k items holds the (weight, value) states that no other state beats, i.e. weights and values
+ * both strictly increasing, so the best value for any capacity c is the last state with weight <= c.
+ * Frontiers of all prefixes are kept, which gives the same reconstruction as {@link BitPackedKnapsack}.
+ */
+class ParetoKnapsack {
+
+    private ParetoKnapsack() {
+    }
+
+    /**
+     * Upper bound on the states generated: the k-th frontier has at most min(2^k, C+1, sum of values + 1) states.
+     */
+    static long estimateStates(int[] values, int[] weights, int C){
+        long total = 0;
+        long size = 1;
+        long valueSum = 0;
+        for (int item=0; item < values.length; item++){
+            if (values[item] > 0 && weights[item] <= C){
+                valueSum += values[item];
+                size = Math.min(Math.min(size * 2, C + 1L), valueSum + 1);
+            }
+            total += size;
+        }
+        return total;
+    }
+
+    /**
+     * @param maxStates give up once the frontiers hold more states than this
+     * @return indices of the chosen items, ascending, or null if the frontiers grew past maxStates
+     */
+    static int[] solve(int[] values, int[] weights, int C, long maxStates){
+        int n = values.length;
+        int[][] frontierWeights = new int[n+1][];
+        long[][] frontierValues = new long[n+1][];
+        frontierWeights[0] = new int[]{0};
+        frontierValues[0] = new long[]{0};
+        long states = 1;
+
+        for (int item=0; item < n; item++){
+            Cancellation.check();
+            int w = weights[item];
+            int v = values[item];
+            int[] fw = frontierWeights[item];
+            long[] fv = frontierValues[item];
+            if (v <= 0 || w > C){
+                // never strictly better to take it
+                frontierWeights[item+1] = fw;
+                frontierValues[item+1] = fv;
+                continue;
+            }
+
+            int size = fw.length;
+            int[] mergedWeights = new int[2 * size];
+            long[] mergedValues = new long[2 * size];
+            int count = 0;
+            int a = 0;
+            int b = 0;
+            while (a < size || (b < size && fw[b] <= C - w)){
+                int weight;
+                long value;
+                if (b >= size || fw[b] > C - w || (a < size && fw[a] <= fw[b] + w)){
+                    weight = fw[a];
+                    value = fv[a];
+                    if (b < size && fw[b] <= C - w && fw[a] == fw[b] + w){
+                        value = Math.max(value, fv[b] + v);
+                        b++;
+                    }
+                    a++;
+                } else {
+                    weight = fw[b] + w;
+                    value = fv[b] + v;
+                    b++;
+                }
+
+                if (count == 0 || value > mergedValues[count-1]){
+                    mergedWeights[count] = weight;
+                    mergedValues[count] = value;
+                    count++;
+                }
+            }
+
+            states += count;
+            if (states > maxStates){
+                return null;
+            }
+            frontierWeights[item+1] = Arrays.copyOf(mergedWeights, count);
+            frontierValues[item+1] = Arrays.copyOf(mergedValues, count);
+        }
+
+        int c = C;
+        int count = 0;
+        int[] chosen = new int[n];
+        for (int item = n-1; item >= 0; item--){
+            int w = weights[item];
+            if (w <= c && best(frontierWeights[item], frontierValues[item], c - w) + values[item]
+                    > best(frontierWeights[item], frontierValues[item], c)){
+                chosen[count++] = item;
+                c -= w;
+            }
+        }
+
+        int[] items = new int[count];
+        for (int k=0; k < count; k++){
+            items[k] = chosen[count - 1 - k];
+        }
+        return items;
+    }
+
+    private static long best(int[] fw, long[] fv, int c){
+        int idx = Arrays.binarySearch(fw, c);
+        if (idx < 0){
+            idx = -idx - 2;
+        }
+        return fv[idx];
+    }
+}
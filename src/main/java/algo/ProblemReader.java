@@ -0,0 +1,328 @@
+package algo;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+/**
+ * Line by line reader of a problem file, straight into primitive arrays.
+ * <p>
+ * Reads from a ByteBuffer (usually a memory mapped file), with no per-token allocation: a line of ints is counted
+ * first and then parsed into one exact-size array, tokens are interned from the bytes in place.
+ */
+public class ProblemReader {
+    private final ByteBuffer buffer;
+    private final int limit;
+    private int pos = 0;
+
+    private ProblemReader(ByteBuffer buffer) {
+        this.buffer = buffer;
+        this.limit = buffer.limit();
+    }
+
+    /**
+     * Maps the whole file (read only).
+     */
+    public static ProblemReader map(FileChannel channel) throws IOException {
+        return new ProblemReader(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+    }
+
+    public static ProblemReader of(List<String> lines){
+        return new ProblemReader(ByteBuffer.wrap(String.join("\n", lines).getBytes(StandardCharsets.UTF_8)));
+    }
+
+    /**
+     * @return a reader of the same bytes from the current position on, which moves on its own
+     */
+    public ProblemReader duplicate(){
+        ProblemReader duplicate = new ProblemReader(buffer);
+        duplicate.pos = pos;
+        return duplicate;
+    }
+
+    public boolean isEmpty(){
+        return limit == 0;
+    }
+
+    /**
+     * @return the rest of the current line, without the line terminator
+     */
+    public String readLine(){
+        requireLine();
+        int end = lineEnd();
+        int textEnd = end > pos && buffer.get(end - 1) == '\r' ? end - 1 : end;
+        byte[] bytes = new byte[textEnd - pos];
+        buffer.get(pos, bytes);
+        pos = Math.min(end + 1, limit);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    public void skipLine(){
+        requireLine();
+        pos = Math.min(lineEnd() + 1, limit);
+    }
+
+    /**
+     * @return the first int of the current line (the rest of the line is skipped)
+     */
+    public int readInt(){
+        requireLine();
+        int end = lineEnd();
+        int start = skipSpaces(pos, end);
+        int tokenEnd = tokenEnd(start, end);
+        if (start == tokenEnd){
+            throw new NumberFormatException("empty line");
+        }
+        int value = parseInt(start, tokenEnd);
+        pos = Math.min(end + 1, limit);
+        return value;
+    }
+
+    /**
+     * @return all the whitespace separated ints of the current line
+     */
+    public int[] readInts(){
+        requireLine();
+        int end = lineEnd();
+        int[] values = new int[countTokens(pos, end)];
+        int i = skipSpaces(pos, end);
+        for (int k=0; k < values.length; k++){
+            int tokenEnd = tokenEnd(i, end);
+            values[k] = parseInt(i, tokenEnd);
+            i = skipSpaces(tokenEnd, end);
+        }
+        pos = Math.min(end + 1, limit);
+        return values;
+    }
+
+    /**
+     * @return number of whitespace separated tokens of the current line
+     */
+    public int readTokenCount(){
+        requireLine();
+        int end = lineEnd();
+        int count = countTokens(pos, end);
+        pos = Math.min(end + 1, limit);
+        return count;
+    }
+
+    /**
+     * @return symbol ids of the whitespace separated tokens of the current line
+     */
+    public int[] readSymbols(SymbolTable symbols){
+        requireLine();
+        int end = lineEnd();
+        int[] tokens = new int[countTokens(pos, end)];
+        int i = skipSpaces(pos, end);
+        for (int k=0; k < tokens.length; k++){
+            int tokenEnd = tokenEnd(i, end);
+            tokens[k] = symbols.intern(buffer, i, tokenEnd);
+            i = skipSpaces(tokenEnd, end);
+        }
+        pos = Math.min(end + 1, limit);
+        return tokens;
+    }
+
+    /**
+     * Splits off the next section: the lines up to a line that is just the separator, or up to the end.
+     * Empty lines before the section are skipped, and the reader moves past the separator.
+     * @return a reader of the section, sharing the bytes (nothing is copied), or null at the end
+     */
+    public ProblemReader nextSection(String separator){
+        byte[] pattern = separator.getBytes(StandardCharsets.UTF_8);
+        while (pos < limit){
+            int end = lineEnd();
+            if (skipSpaces(pos, end) < end){
+                break;
+            }
+            pos = Math.min(end + 1, limit);
+        }
+        if (pos >= limit){
+            return null;
+        }
+
+        int start = pos;
+        int sectionEnd = limit;
+        while (pos < limit){
+            int end = lineEnd();
+            int lineStart = pos;
+            pos = Math.min(end + 1, limit);
+            if (isLine(lineStart, end, pattern)){
+                sectionEnd = lineStart;
+                break;
+            }
+        }
+        return new ProblemReader(buffer.slice(start, sectionEnd - start));
+    }
+
+    /**
+     * @return whether the line is the text, give or take surrounding whitespace
+     */
+    private boolean isLine(int from, int end, byte[] text){
+        int start = skipSpaces(from, end);
+        int tokenEnd = tokenEnd(start, end);
+        return tokenEnd - start == text.length && skipSpaces(tokenEnd, end) == end
+                && (text.length == 0 || buffer.get(start) == text[0] && matches(start, text));
+    }
+
+    /**
+     * @return whether the content from the current line on contains the text
+     */
+    public boolean contains(String text){
+        byte[] pattern = text.getBytes(StandardCharsets.UTF_8);
+        if (pattern.length == 0){
+            return true;
+        }
+        int last = limit - pattern.length;
+        for (int i=pos; i <= last; i++){
+            if (buffer.get(i) == pattern[0] && matches(i, pattern)){
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private boolean matches(int from, byte[] pattern){
+        for (int k=1; k < pattern.length; k++){
+            if (buffer.get(from + k) != pattern[k]){
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Feeds the rest of the content (from the current line on, without moving) to the digest, normalized:
+     * tokens separated by single spaces, lines by '\n', no trailing empty lines.
+     * Content that normalizes the same is read the same by every solver.
+     */
+    public void digestRest(MessageDigest digest){
+        byte[] chunk = new byte[8192];
+        int size = 0;
+        int emptyLines = 0;
+        int i = pos;
+        while (i < limit){
+            int end = i;
+            while (end < limit && buffer.get(end) != '\n'){
+                end++;
+            }
+
+            int t = skipSpaces(i, end);
+            if (t == end){
+                emptyLines++;
+                i = end + 1;
+                continue;
+            }
+
+            for (; emptyLines > 0; emptyLines--){
+                size = put(digest, chunk, size, (byte) '\n');
+            }
+            while (t < end){
+                int tokenEnd = tokenEnd(t, end);
+                for (; t < tokenEnd; t++){
+                    size = put(digest, chunk, size, buffer.get(t));
+                }
+                t = skipSpaces(tokenEnd, end);
+                size = put(digest, chunk, size, t < end ? (byte) ' ' : (byte) '\n');
+            }
+            i = end + 1;
+        }
+        digest.update(chunk, 0, size);
+    }
+
+    private static int put(MessageDigest digest, byte[] chunk, int size, byte b){
+        if (size == chunk.length){
+            digest.update(chunk, 0, size);
+            size = 0;
+        }
+        chunk[size] = b;
+        return size + 1;
+    }
+
+    private void requireLine(){
+        if (pos >= limit){
+            throw new NoSuchElementException("no more lines");
+        }
+    }
+
+    private int lineEnd(){
+        int i = pos;
+        while (i < limit && buffer.get(i) != '\n'){
+            i++;
+        }
+        return i;
+    }
+
+    private int countTokens(int from, int end){
+        int count = 0;
+        int i = skipSpaces(from, end);
+        while (i < end){
+            count++;
+            i = skipSpaces(tokenEnd(i, end), end);
+        }
+        return count;
+    }
+
+    private int skipSpaces(int i, int end){
+        while (i < end && isSpace(buffer.get(i))){
+            i++;
+        }
+        return i;
+    }
+
+    private int tokenEnd(int i, int end){
+        while (i < end && !isSpace(buffer.get(i))){
+            i++;
+        }
+        return i;
+    }
+
+    private static boolean isSpace(byte b){
+        return b == ' ' || b == '\t' || b == '\r' || b == '\f' || b == 0x0B;
+    }
+
+    /**
+     * Same rules as Integer.parseInt, without the String.
+     */
+    private int parseInt(int from, int to){
+        int i = from;
+        boolean negative = false;
+        byte first = buffer.get(i);
+        if (first == '-' || first == '+'){
+            negative = first == '-';
+            i++;
+        }
+        if (i == to){
+            throw numberFormatException(from, to);
+        }
+
+        long value = 0;
+        for (; i < to; i++){
+            int digit = buffer.get(i) - '0';
+            if (digit < 0 || digit > 9){
+                throw numberFormatException(from, to);
+            }
+            value = value * 10 + digit;
+            if (value > Integer.MAX_VALUE + 1L){
+                throw numberFormatException(from, to);
+            }
+        }
+        if (negative){
+            value = -value;
+        }
+        if (value > Integer.MAX_VALUE){
+            throw numberFormatException(from, to);
+        }
+        return (int) value;
+    }
+
+    private NumberFormatException numberFormatException(int from, int to){
+        byte[] bytes = new byte[to - from];
+        buffer.get(from, bytes);
+        return new NumberFormatException("For input string: \"" + new String(bytes, StandardCharsets.UTF_8) + "\"");
+    }
+}
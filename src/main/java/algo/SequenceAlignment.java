@@ -3,102 +3,178 @@ package algo;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.util.List;
+import java.util.concurrent.ForkJoinPool;
 
 
 public class SequenceAlignment implements AlgoSolver{
     private static final Logger logger = LoggerFactory.getLogger(SequenceAlignment.class);
+    private static final long LINEAR_SPACE_THRESHOLD = Long.getLong("algo.alignment.linearSpaceThreshold", 16L * 1024 * 1024);
+    private static final long PARALLEL_THRESHOLD = Long.getLong("algo.alignment.parallelThreshold", 1024L * 1024);
+    private static final int TILE_SIZE = Integer.getInteger("algo.alignment.tileSize", 256);
 
     private String filename;
     private int gapPenalty;
     private int noMatchPenalty;
-    private List<String> str1;
-    private List<String> str2;
+    private int[] str1;
+    private int[] str2;
+    private SymbolTable symbols;
+    /** engine of the last solve, for the {@link SolveEvent} */
+    private String engine;
+    private final long linearSpaceThreshold;
+    private final long parallelThreshold;
+    private final int tileSize;
 
     public SequenceAlignment() {
+        this(LINEAR_SPACE_THRESHOLD);
+    }
+
+    /**
+     * @param linearSpaceThreshold above this many matrix cells ((m+1)*(n+1)), align in linear space
+     */
+    public SequenceAlignment(long linearSpaceThreshold) {
+        this(linearSpaceThreshold, PARALLEL_THRESHOLD, TILE_SIZE);
+    }
+
+    /**
+     * @param linearSpaceThreshold above this many matrix cells ((m+1)*(n+1)), align in linear space
+     * @param parallelThreshold above this many matrix cells, fill the matrix (or the linear space cost rows) in parallel tiles
+     * @param tileSize side of a parallel tile
+     */
+    public SequenceAlignment(long linearSpaceThreshold, long parallelThreshold, int tileSize) {
+        if (tileSize < 1){
+            throw new IllegalArgumentException("tileSize must be positive: " + tileSize);
+        }
+        this.linearSpaceThreshold = linearSpaceThreshold;
+        this.parallelThreshold = parallelThreshold;
+        this.tileSize = tileSize;
     }
 
     @Override
-    public String solve(List<String> data, String filename) {
+    public String solve(ProblemReader reader, String filename) {
         logger.info("solving file <{}>", filename);
-        boolean success = parse(data);
+        boolean success = parse(reader, filename);
         if (!success){
             return "";
         }
+        return solveParsed();
+    }
 
-        this.filename = filename;
-        int m = str1.size();
-        int n = str2.size();
-
-        int[][] A = new int[m+1][n+1];
-        for (int i=0; i <= m; i++){
-            A[i][0] = i * gapPenalty;
-        }
-        for (int i=0; i <= n; i++){
-            A[0][i] = i * gapPenalty;
+    @Override
+    public String solveParsed() {
+        int m = str1.length;
+        int n = str2.length;
+
+        SolveEvent event = new SolveEvent();
+        event.begin();
+        Alignment alignment = align(m, n);
+        SolverCounters.solved((long) m * n);
+        if (event.shouldCommit()){
+            event.algorithm = "SequenceAlignment";
+            event.file = filename;
+            event.rows = m;
+            event.columns = n;
+            event.engine = engine;
+            event.commit();
         }
 
-        for (int i=1; i <= m; i++){
-            String c1 = str1.get(i-1);
-            for (int j=1; j <= n; j++){
-                String c2 = str2.get(j-1);
-                int match = c1.equals(c2) ? 0 : noMatchPenalty;
-                A[i][j] = Math.min(A[i][j-1] + gapPenalty, A[i-1][j] + gapPenalty);
-                A[i][j] = Math.min(A[i-1][j-1] + match, A[i][j]);
+        logger.info("finished solving file <{}>", filename);
+        return format(alignment);
+    }
+
+    /**
+     * Each engine first acquires the memory it will allocate from the {@link MemoryBudget}.
+     */
+    @SuppressWarnings("try") // a lease is only held for its block, never read
+    private Alignment align(int m, int n){
+        long cells = (long) (m + 1) * (n + 1);
+        long bitParallelBytes = BitParallelAlignment.estimateBytes(m, n, symbols.size());
+        boolean bitParallel = BitParallelAlignment.canAlign(gapPenalty, noMatchPenalty)
+                && bitParallelBytes <= linearSpaceThreshold * Integer.BYTES;
+
+        // near-identical inputs: worth it only while the band stays well below the engine it replaces
+        if (BandedAlignment.canAlign(gapPenalty, noMatchPenalty)){
+            long maxBandCells = Math.min(linearSpaceThreshold, cells / (bitParallel ? 64 : 8));
+            // leases each band as it's filled
+            Alignment alignment = BandedAlignment.align(str1, str2, gapPenalty, noMatchPenalty, maxBandCells, MemoryBudget.global());
+            if (alignment != null){
+                logger.debug("file {}: {}x{} matrix, using banded alignment", filename, m, n);
+                engine = "banded";
+                return alignment;
             }
         }
-        int cost = A[m][n];
 
-        //
+        ForkJoinPool pool = ForkJoinPool.commonPool();
+        long bytes;
+        if (bitParallel){
+            bytes = bitParallelBytes;
+        } else if (cells > linearSpaceThreshold && cells > parallelThreshold){
+            // two rows and the tokens per split being filled, at most one per thread, and the moves of the halves
+            bytes = (2L * (n + 1) + m + n) * Integer.BYTES * (pool.getParallelism() + 1) + 2L * (m + n);
+        } else if (cells > linearSpaceThreshold){
+            bytes = 2L * (n + 1) * Integer.BYTES; // two rows
+        } else {
+            bytes = cells * Integer.BYTES;
+        }
 
-        int i = m;
-        int j = n;
+        try (MemoryBudget.Lease lease = MemoryBudget.global().acquire(bytes)){
+            if (bitParallel){
+                logger.debug("file {}: {}x{} matrix, using bit-parallel alignment", filename, m, n);
+                engine = "bit-parallel";
+                return BitParallelAlignment.align(str1, str2, symbols.size(), gapPenalty);
+            } else if (cells > linearSpaceThreshold && cells > parallelThreshold){
+                logger.debug("file {}: {}x{} matrix, using parallel linear space alignment", filename, m, n);
+                engine = "parallel-hirschberg";
+                return ParallelHirschbergAlignment.align(str1, str2, gapPenalty, noMatchPenalty, tileSize, pool);
+            } else if (cells > linearSpaceThreshold){
+                logger.debug("file {}: {}x{} matrix, using linear space alignment", filename, m, n);
+                engine = "hirschberg";
+                return HirschbergAlignment.align(str1, str2, gapPenalty, noMatchPenalty);
+            } else if (cells > parallelThreshold){
+                logger.debug("file {}: {}x{} matrix, using parallel wavefront alignment", filename, m, n);
+                engine = "wavefront";
+                return WavefrontAlignment.align(str1, str2, gapPenalty, noMatchPenalty, tileSize, pool);
+            }
+            engine = "full-matrix";
+            return FullMatrixAlignment.align(str1, str2, gapPenalty, noMatchPenalty);
+        }
+    }
 
+    /**
+     * @return aligned str2, aligned str1 and the cost, one per line
+     */
+    private String format(Alignment alignment){
         StringBuilder sb1 = new StringBuilder();
         StringBuilder sb2 = new StringBuilder();
         String gap = "-";
-        while (i > 0 || j > 0) {
-            if (i <= 0) {
+        int i = 0;
+        int j = 0;
+        for (byte move : alignment.moves){
+            if (move == Alignment.LEFT){
                 sb1.append(gap);
-                sb2.append(str2.get(j - 1));
-                j--;
-                continue;
-            } else if (j <= 0) {
-                sb1.append(str1.get(i - 1));
-                sb2.append(gap);
-                i--;
-                continue;
+            } else {
+                sb1.append(symbols.symbol(str1[i++]));
             }
-
-            String c1 = str1.get(i - 1);
-            String c2 = str2.get(j - 1);
-            int v1 = A[i - 1][j - 1];
-            int v2 = A[i - 1][j];
-            int v3 = A[i][j - 1];
-
-            if (v1 <= Math.min(v2, v3)) {
-                sb1.append(c1);
-                sb2.append(c2);
-                i--;
-                j--;
-            } else if (v2 < Math.min(v1, v3)) {
-                sb1.append(c1);
+            if (move == Alignment.UP){
                 sb2.append(gap);
-                i--;
             } else {
-                sb1.append(gap);
-                sb2.append(c2);
-                j--;
+                sb2.append(symbols.symbol(str2[j++]));
             }
         }
 
-        logger.info("finished solving file <{}>", filename);
-        return sb1.append("\n").append(sb2).reverse().append("\n").append(cost).toString();
+        return sb2.append("\n").append(sb1).append("\n").append(alignment.cost).toString();
     }
 
 
     /**
-     * @param data format: SequenceAlignment, [str1], [str2], [gap], [mismatch]. e.g:
+     * @return m * n
+     */
+    @Override
+    public long estimateCost(ProblemReader reader){
+        return (long) reader.readTokenCount() * reader.readTokenCount();
+    }
+
+    /**
+     * @param reader format: SequenceAlignment, [str1], [str2], [gap], [mismatch]. e.g:
      *                 SequenceAlignment
      *                 A B C
      *                 A V A
@@ -106,14 +182,15 @@ public class SequenceAlignment implements AlgoSolver{
      *                 1
      */
     @Override
-    public boolean parse(List<String> data){
+    public boolean parse(ProblemReader reader){
         try {
-            str1 = Util.splitBySpaces(data, 1);
-            str2 = Util.splitBySpaces(data, 2);
-            logger.debug("str1 length = {},  str2 length = {}", str1.size(), str2.size());
+            symbols = new SymbolTable();
+            str1 = reader.readSymbols(symbols);
+            str2 = reader.readSymbols(symbols);
+            logger.debug("str1 length = {},  str2 length = {}, symbols = {}", str1.length, str2.length, symbols.size());
 
-            gapPenalty = Util.getInt(data, 3);
-            noMatchPenalty = Util.getInt(data, 4);
+            gapPenalty = reader.readInt();
+            noMatchPenalty = reader.readInt();
             logger.debug("gapPenalty = {},  noMatchPenalty = {}", gapPenalty, noMatchPenalty);
         } catch (Exception e){
             logger.error("file {}: parsing error. {}", filename, e);
@@ -122,4 +199,10 @@ public class SequenceAlignment implements AlgoSolver{
 
         return true;
     }
+
+    @Override
+    public boolean parse(ProblemReader reader, String filename){
+        this.filename = filename;
+        return parse(reader);
+    }
 }
@@ -0,0 +1,35 @@
+package algo;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * JFR event of a problem solved, with the engine the solver chose and the dimensions it chose by.
+ * Not committed when the solver is cancelled.
+ */
+@Name("algosolver.Solve")
+@Label("Solve")
+@Category({"Algo Solver", "Task"})
+@Description("A problem solved, with the engine chosen")
+@StackTrace(false)
+class SolveEvent extends jdk.jfr.Event {
+    @Label("Algorithm")
+    String algorithm;
+
+    @Label("File")
+    String file;
+
+    @Label("Rows")
+    @Description("Knapsack: items, SequenceAlignment: length of the first sequence")
+    long rows;
+
+    @Label("Columns")
+    @Description("Knapsack: capacity + 1, SequenceAlignment: length of the second sequence")
+    long columns;
+
+    @Label("Engine")
+    String engine;
+}
@@ -0,0 +1,31 @@
+package algo;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Cumulative counters of all the solvers, updated once per problem (striped, so solvers on many threads don't contend).
+ */
+public final class SolverCounters {
+    private static final LongAdder cells = new LongAdder();
+    private static final LongAdder problems = new LongAdder();
+
+    private SolverCounters() {
+    }
+
+    /**
+     * @param dpCells cells of the full DP table the problem stands for (n*(C+1), m*n), whichever engine solved it:
+     *                the problem's size, not the cells the engine filled (far fewer for the sparse and banded ones)
+     */
+    static void solved(long dpCells){
+        cells.add(dpCells);
+        problems.increment();
+    }
+
+    public static long cells(){
+        return cells.sum();
+    }
+
+    public static long problems(){
+        return problems.sum();
+    }
+}
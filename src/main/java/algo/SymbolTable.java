@@ -0,0 +1,92 @@
+package algo;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Maps tokens to dense int ids (0, 1, 2, ...), so equal tokens can be compared as ints.
+ * <p>
+ * Tokens are looked up by their UTF-8 bytes in an open addressing table, so interning a token that is already known
+ * allocates nothing. A String is only made once per distinct token, for the output.
+ */
+public class SymbolTable {
+    private final List<String> symbols = new ArrayList<>();
+    private final List<byte[]> symbolBytes = new ArrayList<>();
+    /** symbol id + 1 per slot, 0 = empty */
+    private int[] slots = new int[64];
+
+    public int intern(String token){
+        byte[] bytes = token.getBytes(StandardCharsets.UTF_8);
+        return intern(ByteBuffer.wrap(bytes), 0, bytes.length);
+    }
+
+    /**
+     * Interns the bytes [from, to) of the buffer.
+     */
+    public int intern(ByteBuffer buffer, int from, int to){
+        int hash = hash(buffer, from, to);
+        int mask = slots.length - 1;
+        for (int slot = hash & mask; ; slot = (slot + 1) & mask){
+            int id = slots[slot] - 1;
+            if (id < 0){
+                byte[] bytes = new byte[to - from];
+                buffer.get(from, bytes);
+                id = symbols.size();
+                symbols.add(new String(bytes, StandardCharsets.UTF_8));
+                symbolBytes.add(bytes);
+                slots[slot] = id + 1;
+                if (symbols.size() * 2 > slots.length){
+                    rehash();
+                }
+                return id;
+            }
+            if (equals(symbolBytes.get(id), buffer, from, to)){
+                return id;
+            }
+        }
+    }
+
+    public String symbol(int id){
+        return symbols.get(id);
+    }
+
+    public int size(){
+        return symbols.size();
+    }
+
+    private void rehash(){
+        slots = new int[slots.length * 2];
+        int mask = slots.length - 1;
+        for (int id=0; id < symbolBytes.size(); id++){
+            byte[] bytes = symbolBytes.get(id);
+            int slot = hash(ByteBuffer.wrap(bytes), 0, bytes.length) & mask;
+            while (slots[slot] != 0){
+                slot = (slot + 1) & mask;
+            }
+            slots[slot] = id + 1;
+        }
+    }
+
+    private static int hash(ByteBuffer buffer, int from, int to){
+        int hash = 0x811c9dc5;
+        for (int i=from; i < to; i++){
+            hash = (hash ^ buffer.get(i)) * 0x01000193;
+        }
+        return hash ^ (hash >>> 16);
+    }
+
+    private static boolean equals(byte[] bytes, ByteBuffer buffer, int from, int to){
+        if (bytes.length != to - from){
+            return false;
+        }
+        for (int i=0; i < bytes.length; i++){
+            if (bytes[i] != buffer.get(from + i)){
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,122 @@
+package algo;
+
+import java.util.concurrent.CountedCompleter;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+/**
+ * Fills the full alignment matrix in parallel, tile by tile.
+ * <p>
+ * A tile only depends on the tiles above and to the left of it, so tiles on the same anti-diagonal are independent.
+ * Every tile is forked as soon as its last dependency finishes (no barrier per diagonal).
+ * The matrix is the same as {@link FullMatrixAlignment}'s, and so is the traceback.
+ */
+class WavefrontAlignment {
+    private final int[] str1;
+    private final int[] str2;
+    private final int gapPenalty;
+    private final int noMatchPenalty;
+    private final int tileSize;
+
+    private final int[][] A;
+    private final int tileRows;
+    private final int tileCols;
+    private final AtomicIntegerArray pendingDependencies;
+    /** the thread that cancels by being interrupted */
+    private final Thread owner = Thread.currentThread();
+
+    private WavefrontAlignment(int[] str1, int[] str2, int gapPenalty, int noMatchPenalty, int tileSize) {
+        this.str1 = str1;
+        this.str2 = str2;
+        this.gapPenalty = gapPenalty;
+        this.noMatchPenalty = noMatchPenalty;
+        this.tileSize = tileSize;
+
+        int m = str1.length;
+        int n = str2.length;
+        this.A = new int[m+1][n+1];
+        this.tileRows = (m + tileSize - 1) / tileSize;
+        this.tileCols = (n + tileSize - 1) / tileSize;
+        this.pendingDependencies = new AtomicIntegerArray(tileRows * tileCols);
+        for (int ti=0; ti < tileRows; ti++){
+            for (int tj=0; tj < tileCols; tj++){
+                pendingDependencies.set(ti * tileCols + tj, (ti > 0 ? 1 : 0) + (tj > 0 ? 1 : 0));
+            }
+        }
+    }
+
+    static Alignment align(int[] str1, int[] str2, int gapPenalty, int noMatchPenalty,
+                           int tileSize, ForkJoinPool pool){
+        WavefrontAlignment wavefront = new WavefrontAlignment(str1, str2, gapPenalty, noMatchPenalty, tileSize);
+        wavefront.fill(pool);
+        return FullMatrixAlignment.traceback(wavefront.A, str1, str2, gapPenalty, noMatchPenalty);
+    }
+
+    private void fill(ForkJoinPool pool){
+        int m = str1.length;
+        int n = str2.length;
+        for (int i=0; i <= m; i++){
+            A[i][0] = i * gapPenalty;
+        }
+        for (int i=0; i <= n; i++){
+            A[0][i] = i * gapPenalty;
+        }
+        if (tileRows == 0 || tileCols == 0){
+            return;
+        }
+
+        pool.invoke(new CountedCompleter<Void>() {
+            @Override
+            public void compute() {
+                addToPendingCount(1);
+                new Tile(this, 0, 0).fork();
+                tryComplete();
+            }
+        });
+    }
+
+    @SuppressWarnings("serial") // fork-join tasks are never serialized
+    private class Tile extends CountedCompleter<Void> {
+        private final int ti;
+        private final int tj;
+
+        Tile(CountedCompleter<?> root, int ti, int tj) {
+            super(root);
+            this.ti = ti;
+            this.tj = tj;
+        }
+
+        @Override
+        public void compute() {
+            fillTile(ti, tj);
+
+            CountedCompleter<?> root = getCompleter();
+            if (ti + 1 < tileRows && pendingDependencies.decrementAndGet((ti + 1) * tileCols + tj) == 0){
+                root.addToPendingCount(1);
+                new Tile(root, ti + 1, tj).fork();
+            }
+            if (tj + 1 < tileCols && pendingDependencies.decrementAndGet(ti * tileCols + tj + 1) == 0){
+                root.addToPendingCount(1);
+                new Tile(root, ti, tj + 1).fork();
+            }
+            tryComplete();
+        }
+    }
+
+    private void fillTile(int ti, int tj){
+        Cancellation.check(owner);
+        int iEnd = Math.min((ti + 1) * tileSize, str1.length);
+        int jStart = tj * tileSize + 1;
+        int jEnd = Math.min((tj + 1) * tileSize, str2.length);
+
+        for (int i = ti * tileSize + 1; i <= iEnd; i++){
+            int c1 = str1[i-1];
+            int[] row = A[i];
+            int[] prev = A[i-1];
+            for (int j=jStart; j <= jEnd; j++){
+                int match = c1 == str2[j-1] ? 0 : noMatchPenalty;
+                row[j] = Math.min(Math.min(row[j-1], prev[j]) + gapPenalty, prev[j-1] + match);
+            }
+        }
+    }
+}
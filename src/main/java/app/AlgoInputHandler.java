@@ -2,122 +2,317 @@ package app;
 
 import algo.AlgoSolver;
 import algo.Knapsack;
+import algo.ProblemReader;
 import algo.SequenceAlignment;
-import com.google.gson.Gson;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import events.*;
-import lombok.AllArgsConstructor;
+import monitor.Metrics;
+import monitor.QueueStats;
+import monitor.StageTimes;
+import monitor.StageTimes.Stage;
 import monitor.TaskStats;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.io.BufferedReader;
-import java.io.FileReader;
-import java.io.FileWriter;
+import java.io.BufferedOutputStream;
 import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.ClosedByInterruptException;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
 import java.util.HashMap;
-import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
 import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
 import java.util.function.Supplier;
-import java.util.stream.Collectors;
 
 public class AlgoInputHandler implements EventSubscriber, EventEmitter {
     private static final Logger logger = LoggerFactory.getLogger(AlgoInputHandler.class);
 
-    private static final int FILE_SIZE_LIMIT = 10 * 1024;
+    private static final long FILE_SIZE_LIMIT = Integer.MAX_VALUE; // one mapping
+    private static final String SOLUTION_MARKER = "\nSolution:\n";
+    /** handleEvent's result for a file that already has a solution */
+    static final String SKIPPED = "skipped";
+    /** handleEventWithDeadline's result for a file cancelled on its deadline */
+    static final String TIMEOUT = "timeout";
     private static final HashMap<String, Supplier<AlgoSolver>> algorithmSolvers = new HashMap<>() {{
         put("knapsack", Knapsack::new);
         put("sequencealignment", SequenceAlignment::new);
     }};
-    private static final Gson gson = new Gson();
+    /** header of a file with many problems, separated by BUNDLE_SEPARATOR lines */
+    private static final String BUNDLE = "bundle";
+    private static final String BUNDLE_SEPARATOR = "---";
+    /** threads waiting on and writing for a bundle's problems; the solving is limited by the solve slots */
+    private static final int BUNDLE_THREADS = Integer.getInteger("app.bundle.threads", Runtime.getRuntime().availableProcessors());
+    /** instances of a bundle in flight at once */
+    private static final int BUNDLE_WINDOW = BUNDLE_THREADS * 4;
 
     private static final int QUEUE_LIMIT = 50;
     private static final int TASK_TIMEOUT = 15 * 1000;
 
-    private final BlockingQueue<EventData> eventQueue = new LinkedBlockingQueue<>(QUEUE_LIMIT);
-    private final BlockingQueue<TaskInfo> futuresQueue = new LinkedBlockingQueue<>();
-    private final LinkedBlockingQueue<Runnable> algoExecutorInnerQueue = new LinkedBlockingQueue<>(QUEUE_LIMIT);
-    private final ExecutorService algoExecutorService = new ThreadPoolExecutor(3, 3, 0L, TimeUnit.MILLISECONDS, algoExecutorInnerQueue);
+    private final SpillQueue eventQueue;
+    /** files submitted and not done yet, so a file reported twice (watcher, scan, journal replay) is solved once */
+    private final Set<String> pending = ConcurrentHashMap.newKeySet();
+    private final ScheduledThreadPoolExecutor deadlines = new ScheduledThreadPoolExecutor(1,
+            new ThreadFactoryBuilder().setNameFormat("task-deadlines").setDaemon(true).build());
     private boolean STOPPED = false;
     private final Publisher publisher;
+    private final SolutionCache solutionCache;
+    private final Supplier<TaskScheduler> schedulerFactory;
+    /** null unless the directory is shared with other nodes */
+    private final WorkClaims claims;
+    private final String nodeId;
+    private final SolveSlots solveSlots = SolveSlots.fromSystemProperties();
+    private final LongAdder timeouts = new LongAdder();
+    /** malformed problems and unknown algorithms */
+    private final LongAdder parseFailures = new LongAdder();
+    /** files found already solved */
+    private final LongAdder skipped = new LongAdder();
+    private static final int ESTIMATE_THREADS = Integer.getInteger("app.estimate.threads", 4);
+    /** events being estimated, on top of the scheduler's QUEUE_LIMIT */
+    private final Semaphore estimating = new Semaphore(ESTIMATE_THREADS * 2);
+    private final ExecutorService costEstimators = Executors.newFixedThreadPool(ESTIMATE_THREADS,
+            new ThreadFactoryBuilder().setNameFormat("cost-estimator-%d").setDaemon(true).build());
+    private final ExecutorService bundleWorkers = Executors.newFixedThreadPool(BUNDLE_THREADS,
+            new ThreadFactoryBuilder().setNameFormat("bundle-worker-%d").setDaemon(true).build());
+    private volatile TaskScheduler scheduler;
+    /** the DeadlineTask running on a thread */
+    private final ThreadLocal<DeadlineTask<?>> runningTask = new ThreadLocal<>();
+
+    /**
+     * A task with its own deadline, TASK_TIMEOUT from when it starts running (waiting in the queue doesn't count).
+     * On the deadline it's cancelled with an interrupt, which the solvers check for.
+     * Also each problem of a bundle, the bundle task itself having no deadline ({@link #liftDeadline}).
+     */
+    private class DeadlineTask<T> extends FutureTask<T> {
+        private final String file;
+        /** for the logs, e.g. "FILE_CREATED a.txt" or "a.txt#3" */
+        private final String name;
+        private ScheduledFuture<?> deadline;
+        /** the time left while paused, or -1 */
+        private long remainingMs = -1;
+
+        DeadlineTask(Runnable runnable, EventData eventData) {
+            super(runnable, null);
+            this.file = eventData.getData();
+            this.name = eventData.getEvent() + " " + eventData.getData();
+        }
+
+        DeadlineTask(Callable<T> callable, String file, String name) {
+            super(callable);
+            this.file = file;
+            this.name = name;
+        }
+
+        @Override
+        public void run() {
+            deadline = deadlines.schedule(this::expire, TASK_TIMEOUT, TimeUnit.MILLISECONDS);
+            runningTask.set(this);
+            try {
+                super.run();
+            } finally {
+                runningTask.remove();
+                deadline.cancel(false);
+            }
+        }
+
+        /**
+         * Called from the task: it runs until done.
+         */
+        void liftDeadline() {
+            deadline.cancel(false);
+        }
+
+        /**
+         * Called from the task: stops the clock, e.g. while it waits for a solve slot.
+         */
+        void pauseDeadline() {
+            long remaining = deadline.getDelay(TimeUnit.MILLISECONDS);
+            if (deadline.cancel(false)) {
+                remainingMs = Math.max(remaining, 0);
+            }
+        }
+
+        /**
+         * Called from the task: the clock goes on with the time that was left.
+         */
+        void resumeDeadline() {
+            if (remainingMs >= 0) {
+                deadline = deadlines.schedule(this::expire, remainingMs, TimeUnit.MILLISECONDS);
+                remainingMs = -1;
+            }
+        }
 
-    @AllArgsConstructor
-    static class TaskInfo {
-        Future<?> future;
-        EventData eventData;
+        private void expire() {
+            if (cancelFor("timeout")) {
+                timeouts.increment();
+            }
+        }
+
+        /**
+         * Cancels the task with an interrupt, e.g. on the deadline.
+         * @return false if it's done already
+         */
+        boolean cancelFor(String reason) {
+            if (!cancel(true)) {
+                return false;
+            }
+            TaskEvents.Cancel cancel = new TaskEvents.Cancel();
+            if (cancel.shouldCommit()) {
+                cancel.file = file;
+                cancel.reason = reason;
+                cancel.commit();
+            }
+            logger.warn("canceling task for [{}] (reason: {}).", name, reason);
+            return true;
+        }
+
+        @Override
+        protected void setException(Throwable t) {
+            if (!isCancelled()) {
+                logger.error("task for [{}] failed", name, t);
+            }
+            super.setException(t);
+        }
     }
 
     public AlgoInputHandler(Publisher publisher) {
+        this(publisher, SolutionCache.fromSystemProperties());
+    }
+
+    public AlgoInputHandler(Publisher publisher, SolutionCache solutionCache) {
+        this(publisher, solutionCache, TaskScheduler::fromSystemProperties);
+    }
+
+    /**
+     * @param schedulerFactory called once by start(), so the workers only exist while the handler is running
+     */
+    public AlgoInputHandler(Publisher publisher, SolutionCache solutionCache, Supplier<TaskScheduler> schedulerFactory) {
+        this(publisher, solutionCache, schedulerFactory, null);
+    }
+
+    /**
+     * @param claims a task first claims its file, and is skipped if another node has it (null: no other nodes)
+     */
+    public AlgoInputHandler(Publisher publisher, SolutionCache solutionCache, Supplier<TaskScheduler> schedulerFactory,
+                            WorkClaims claims) {
         this.publisher = publisher;
+        this.solutionCache = solutionCache;
+        this.schedulerFactory = schedulerFactory;
+        this.claims = claims;
+        this.nodeId = claims == null ? WorkClaims.defaultNodeId() : claims.nodeId();
+        // nodes on one host don't share a journal
+        this.eventQueue = SpillQueue.fromSystemProperties(QUEUE_LIMIT, claims == null ? null : nodeId);
+        this.deadlines.setRemoveOnCancelPolicy(true);
     }
 
     public void start() throws InterruptedException {
         logger.info("started");
-
-        startCancellationService();
+        scheduler = schedulerFactory.get();
 
         while (true) {
             EventData eventData = eventQueue.take();
-            long startTime = System.currentTimeMillis();
+            long startTime = System.nanoTime();
             String filePath = eventData.getData();
-            Event event = eventData.getEvent();
 
             if (Path.of(filePath).getFileName().toString().equals(EventData.STOP_MESSAGE)) {
                 logger.warn("stopping service (reason: STOP_MESSAGE)");
                 STOPPED = true;
-                futuresQueue.add(new TaskInfo(null, eventData));
                 break;
             }
 
-            if (algoExecutorInnerQueue.size() >= QUEUE_LIMIT) {
-                logger.error("dropping {} (reason: inner queue max capacity) ", eventData);
-                return;
+            // checked as events leave the queue, so the ones replayed from the journal after a restart are too
+            if (!pending.add(filePath)) {
+                logger.info("ignoring {} (reason: already submitted)", eventData);
+                continue;
             }
 
-            Future<?> future = algoExecutorService.submit(() -> {
-                String algoName = handleEvent(filePath, event);
-                if (algoName.length() == 0) {
-                    algoName = "error";
+            // backpressure: events wait in eventQueue (or its journal) until the scheduler has room
+            scheduler.awaitBelow(QUEUE_LIMIT);
+
+            // the estimate reads the file, off this thread so the reads overlap
+            estimating.acquire();
+            costEstimators.execute(() -> {
+                try {
+                    submit(eventData, startTime);
+                } catch (RuntimeException e) {
+                    logger.error("can't submit a task for {}", eventData, e);
+                    pending.remove(filePath);
+                } finally {
+                    estimating.release();
                 }
-                long totalTime = System.currentTimeMillis() - startTime;
-                logger.info("{} ms (receive event->done). Task <{} {}>)", totalTime, filePath, event);
-                emit(new EventData(Event.TASK_STATS, gson.toJson(new TaskStats(algoName, totalTime))));
             });
-
-            futuresQueue.add(new TaskInfo(future, eventData));
         }
     }
 
-    private void startCancellationService() {
-        // get() blocks, so another thread. maybe there's a better way to cancel
-        new Thread(() -> {
-            while (true) {
-                TaskInfo taskInfo = null;
-                try {
-                    taskInfo = futuresQueue.take();
-                } catch (InterruptedException e) {
-                    logger.error("stopping task cancellation service (reason: interrupted)", e);
-                    break;
+    /**
+     * Estimates the cost of the event's file and submits its task to the scheduler.
+     */
+    private void submit(EventData eventData, long startTime) {
+        String filePath = eventData.getData();
+        Event event = eventData.getEvent();
+        long cost = estimateCost(filePath);
+        TaskScheduler.Lane lane = scheduler.lane(cost);
+        TaskEvents.Dequeue dequeue = new TaskEvents.Dequeue();
+        if (dequeue.shouldCommit()) {
+            dequeue.file = filePath;
+            dequeue.lane = lane.name().toLowerCase();
+            dequeue.cost = cost;
+            dequeue.tasksWaiting = scheduler.size();
+            dequeue.commit();
+        }
+        long queuedAt = System.nanoTime();
+        scheduler.submit(new DeadlineTask<Void>(() -> {
+            WorkClaims.Claim claim = null;
+            try {
+                if (claims != null) {
+                    // another node may be solving the file once the claim is lost
+                    DeadlineTask<?> task = runningTask.get();
+                    claim = claims.tryClaim(Path.of(filePath), () -> task.cancelFor("claim lost"));
+                    if (claim == null) {
+                        logger.info("skipping <{}> (reason: claimed by another node)", filePath);
+                        return;
+                    }
                 }
-
-                EventData eventData = taskInfo.eventData;
-                String filename = Path.of(eventData.getData()).getFileName().toString();
-                if (filename.equals(EventData.STOP_MESSAGE)) {
-                    logger.warn("stopping task cancellation service (reason: STOP_MESSAGE)");
-                    break;
+                StageTimes times = new StageTimes();
+                long waitTime = System.nanoTime() - queuedAt;
+                times.add(Stage.QUEUE, waitTime);
+                logger.info("{} ms in queue ({} lane, cost {}). Task <{} {}>", TimeUnit.NANOSECONDS.toMillis(waitTime), lane, cost, filePath, event);
+                String algoName = handleEvent(filePath, event, times);
+                if (algoName.equals(SKIPPED)) {
+                    // no work done: counted, but kept out of the per-algorithm stats
+                    skipped.increment();
+                    return;
                 }
-
-                try {
-                    taskInfo.future.get(TASK_TIMEOUT, TimeUnit.MILLISECONDS);
-                } catch (InterruptedException | TimeoutException e) {
-                    taskInfo.future.cancel(true); // *Attempts* to cancel
-                    logger.warn("canceling task for [{} {}] (reason: timeout).", eventData.getEvent(), eventData.getData());
-                } catch (ExecutionException e) {
-                    logger.error("", e);
+                if (algoName.length() == 0) {
+                    algoName = "error";
                 }
+                long totalTime = System.nanoTime() - startTime;
+                times.add(Stage.TOTAL, totalTime);
+                logger.info("{} ms (receive event->done). Task <{} {}>)", TimeUnit.NANOSECONDS.toMillis(totalTime), filePath, event);
+                emit(new EventData(Event.TASK_STATS, algoName,
+                        new TaskStats(algoName, TimeUnit.NANOSECONDS.toMillis(totalTime), TimeUnit.NANOSECONDS.toMillis(waitTime),
+                                lane.name().toLowerCase(), solutionCache.stats(), queueStats(), times, nodeId)));
+            } catch (IOException e) {
+                logger.error("can't claim <{}>", filePath, e);
+            } finally {
+                if (claim != null) {
+                    claim.close();
+                }
+                pending.remove(filePath);
             }
-        }).start();
+        }, eventData), cost);
     }
 
     @Override
@@ -128,12 +323,51 @@ public class AlgoInputHandler implements EventSubscriber, EventEmitter {
         }
 
         logger.info("received {}", eventData);
-        if (eventQueue.size() >= QUEUE_LIMIT) {
-            logger.error("dropping {} (reason: queue max capacity) ", eventData);
-            return;
+        try {
+            eventQueue.put(eventData);
+            TaskEvents.Enqueue enqueue = new TaskEvents.Enqueue();
+            if (enqueue.shouldCommit()) {
+                enqueue.file = eventData.getData();
+                enqueue.event = eventData.getEvent().name();
+                enqueue.queueDepth = eventQueue.size();
+                enqueue.journalDepth = eventQueue.spilledSize();
+                enqueue.commit();
+            }
+        } catch (InterruptedException e) {
+            logger.error("dropping {} (reason: interrupted)", eventData);
+            Thread.currentThread().interrupt();
         }
+    }
+
+    /**
+     * Registers the queues, the scheduler, the cache and the failure counters. The values are read only when scraped.
+     */
+    public void registerMetrics(Metrics metrics) {
+        metrics.gauge("algo_solver_event_queue_depth", "events waiting in memory", eventQueue::size)
+                .gauge("algo_solver_event_journal_depth", "events waiting in the spill journal", eventQueue::spilledSize)
+                .counter("algo_solver_events_spilled_total", "events spilled to the journal", eventQueue::spilledCount)
+                .counter("algo_solver_events_replayed_total", "events replayed from the journal", eventQueue::replayedCount)
+                .register("algo_solver_task_queue_depth", "tasks waiting for a worker, by lane", Metrics.Type.GAUGE, () -> {
+                    TaskScheduler current = scheduler;
+                    return Arrays.stream(TaskScheduler.Lane.values())
+                            .map(lane -> new Metrics.Sample(Map.of("lane", lane.name().toLowerCase()), current == null ? 0 : current.size(lane)))
+                            .toList();
+                })
+                .gauge("algo_solver_tasks_active", "tasks running", () -> scheduler == null ? 0 : scheduler.activeCount())
+                .gauge("algo_solver_solve_slot_waiters", "tasks waiting for a solve slot", solveSlots::waitingCount)
+                .counter("algo_solver_tasks_completed_total", "tasks run", () -> scheduler == null ? 0 : scheduler.completedCount())
+                .counter("algo_solver_task_timeouts_total", "tasks and bundle problems cancelled on their deadline", timeouts::sum)
+                .counter("algo_solver_parse_failures_total", "malformed problems and unknown algorithms", parseFailures::sum)
+                .counter("algo_solver_files_skipped_total", "files found already solved", skipped::sum)
+                .counter("algo_solver_cache_hits_total", "solution cache hits", () -> solutionCache.stats().getHits())
+                .counter("algo_solver_cache_misses_total", "solution cache misses", () -> solutionCache.stats().getMisses())
+                .counter("algo_solver_cache_evictions_total", "solution cache evictions", () -> solutionCache.stats().getEvictions())
+                .gauge("algo_solver_cache_size", "solutions cached", () -> solutionCache.stats().getSize());
+    }
 
-        eventQueue.add(eventData);
+    public QueueStats queueStats() {
+        return new QueueStats(eventQueue.size(), eventQueue.spilledSize(), scheduler == null ? 0 : scheduler.size(),
+                eventQueue.spilledCount(), eventQueue.replayedCount());
     }
 
     @Override
@@ -142,56 +376,337 @@ public class AlgoInputHandler implements EventSubscriber, EventEmitter {
     }
 
     public String handleEvent(String filePath, Event event) {
+        return handleEvent(filePath, event, new StageTimes());
+    }
+
+    /**
+     * handleEvent on the calling thread, cancelled on the same deadline as a scheduled task (for the batch mode).
+     * @return as handleEvent, or TIMEOUT
+     */
+    String handleEventWithDeadline(String filePath, Event event) {
+        AtomicReference<String> result = new AtomicReference<>("");
+        DeadlineTask<Void> task = new DeadlineTask<>(() -> result.set(handleEvent(filePath, event)), new EventData(event, filePath));
+        task.run();
+        try {
+            task.get();
+            return result.get();
+        } catch (CancellationException e) {
+            return TIMEOUT;
+        } catch (ExecutionException e) {
+            return ""; // logged by the task
+        } catch (InterruptedException e) {
+            throw new IllegalStateException("the task is done", e);
+        } finally {
+            Thread.interrupted(); // a late cancel's interrupt is not for the next file
+        }
+    }
+
+    /**
+     * @param times gets the parse, solve and write times
+     */
+    public String handleEvent(String filePath, Event event, StageTimes times) {
+        TaskEvents.Parse parse = new TaskEvents.Parse();
+        parse.begin();
+        long parseStart = System.nanoTime();
         String algoName = "";
         logger.info("handling event [{} {}]", event, filePath);
-        try (FileWriter fw = new FileWriter(filePath, true);
-             FileReader fr = new FileReader(filePath);
-             BufferedReader bufferedReader = new BufferedReader(fr)) {
+        try (FileChannel channel = FileChannel.open(Path.of(filePath), StandardOpenOption.READ, StandardOpenOption.WRITE)) {
 
             if (!validateFile(filePath)) {
                 return algoName;
             }
 
-            List<String> content = readFile(bufferedReader, filePath);
+            ProblemReader reader = ProblemReader.map(channel);
+            if (reader.contains(SOLUTION_MARKER)) {
+                logger.info("file <{}> already has a solution, skipping", filePath);
+                return SKIPPED;
+            }
 
-            algoName = content.get(0);
+            algoName = reader.readLine();
+            if (getAlgoKey(algoName).equals(BUNDLE)) {
+                solveBundle(reader, channel, filePath, times);
+                return algoName;
+            }
             AlgoSolver solver = getConcreteAlgoSolver(algoName);
             if (solver == null) {
                 logger.error("unknown algorithm {}.", algoName);
+                parseFailures.increment();
                 return "unknown";
             }
 
-            String result = solver.solve(content, filePath);
-            appendResultToFile(result, fw, filePath);
+            String result = solveOrGetCached(solver, algoName, reader, filePath, times, parseStart, parse);
+            if (result == null) {
+                // logged and counted by the parse; no solution block, so the file still reads as unsolved
+                return "";
+            }
+            long writeStart = System.nanoTime();
+            appendResultToFile(result, channel, filePath);
+            times.add(Stage.WRITE, System.nanoTime() - writeStart);
 
-        } catch (IOException | IndexOutOfBoundsException e) {
+        } catch (IOException | IndexOutOfBoundsException | NoSuchElementException e) {
+            if (!(e instanceof IOException)) {
+                parseFailures.increment();
+            }
             logger.error("filename <{}>: ", filePath, e);
             return "";
+        } catch (CancellationException e) {
+            logger.warn("filename <{}>: solver stopped (reason: {})", filePath, e.getMessage());
+            return "timeout";
         }
         return algoName;
     }
 
-    private List<String> readFile(BufferedReader br, String filePath) {
-        List<String> content = br.lines().collect(Collectors.toList());
-        if (content.size() == 0) {
-            logger.warn("retry: reading file {}", filePath);
-            content = br.lines().collect(Collectors.toList());
+    /**
+     * @param parseStart when reading the file or problem started, for the parse time
+     * @param parse begun then, committed here on a cache hit or after the solver's parse
+     * @return the solution (possibly empty, e.g. no items fit), or null if the problem can't be parsed
+     */
+    private String solveOrGetCached(AlgoSolver solver, String algoName, ProblemReader reader, String filePath,
+                                    StageTimes times, long parseStart, TaskEvents.Parse parse) {
+        String key = SolutionCache.key(getAlgoKey(algoName), reader);
+        String result = solutionCache.get(key);
+        times.add(Stage.PARSE, System.nanoTime() - parseStart);
+        if (result != null) {
+            logger.info("file <{}>: solution found in cache", filePath);
+            commit(parse, filePath, algoName, true, true);
+            return result;
+        }
+        result = solve(solver, algoName, reader, filePath, times, parse);
+        if (result != null) {
+            solutionCache.put(key, result);
+        }
+        return result;
+    }
+
+    /**
+     * Solves the problems of a bundle file in parallel, as they are read, and appends their solutions in order,
+     * separated like the problems (an empty solution for a problem that failed), through one buffered stream.
+     * At most BUNDLE_WINDOW problems are in flight, so a bundle of any length is solved in bounded memory.
+     * Each problem is parsed and solved in a solve slot like a single file, so a bundle gets no more of the cores than
+     * its turn, whatever app.bundle.threads is. Each problem has the task deadline, and one that runs past it gets an empty solution like a failed one, so a long
+     * bundle finishes with the other solutions kept. Only if the writing fails, or the task is interrupted, are the
+     * problems in flight cancelled and the file left as it was, to be retried.
+     */
+    private void solveBundle(ProblemReader reader, FileChannel channel, String filePath, StageTimes times) throws IOException {
+        // each problem has its own deadline, so however many there are, the bundle runs until they are all done
+        DeadlineTask<?> task = runningTask.get();
+        if (task != null) {
+            task.liftDeadline();
+        }
+        long originalSize = channel.size();
+        Deque<Future<String>> inFlight = new ArrayDeque<>();
+        OutputStream out = new BufferedOutputStream(Channels.newOutputStream(channel.position(originalSize)), 1 << 16);
+        int instances = 0;
+        boolean done = false;
+        try {
+            out.write(SOLUTION_MARKER.getBytes(StandardCharsets.UTF_8));
+            ProblemReader instance;
+            while ((instance = reader.nextSection(BUNDLE_SEPARATOR)) != null) {
+                if (inFlight.size() == BUNDLE_WINDOW) {
+                    writeBundleResult(out, inFlight, instances - BUNDLE_WINDOW, times);
+                }
+                ProblemReader problem = instance;
+                String name = filePath + "#" + instances++;
+                DeadlineTask<String> problemTask = new DeadlineTask<>(() -> solveInstance(problem, name, times), filePath, name);
+                bundleWorkers.execute(problemTask);
+                inFlight.add(problemTask);
+            }
+            for (int i = instances - inFlight.size(); !inFlight.isEmpty(); i++) {
+                writeBundleResult(out, inFlight, i, times);
+            }
+            TaskEvents.Write write = new TaskEvents.Write();
+            write.begin();
+            long writeStart = System.nanoTime();
+            out.flush();
+            times.add(Stage.WRITE, System.nanoTime() - writeStart);
+            if (write.shouldCommit()) {
+                write.file = filePath;
+                write.bytes = channel.size() - originalSize;
+                write.commit();
+            }
+            done = true;
+            logger.info("file <{}>: {} problems solved", filePath, instances);
+        } catch (ClosedByInterruptException e) {
+            throw new CancellationException("interrupted writing bundle solutions");
+        } finally {
+            if (!done) {
+                inFlight.forEach(future -> future.cancel(true));
+                truncate(filePath, originalSize);
+            }
+        }
+    }
+
+    /**
+     * On a new channel, as the task's channel is closed by the interrupt that cancelled it, if it was writing.
+     */
+    private static void truncate(String filePath, long size) throws IOException {
+        boolean interrupted = Thread.interrupted();
+        try (FileChannel channel = FileChannel.open(Path.of(filePath), StandardOpenOption.WRITE)) {
+            channel.truncate(size);
+        } finally {
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    /**
+     * Waits for the first problem in flight and writes its solution. It stays in flight until then, to be cancelled with the rest.
+     */
+    private void writeBundleResult(OutputStream out, Deque<Future<String>> inFlight, int index, StageTimes times) throws IOException {
+        String result;
+        try {
+            result = inFlight.peek().get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new CancellationException("interrupted waiting for bundle problems");
+        } catch (ExecutionException e) {
+            logger.error("bundle problem {} failed", index, e.getCause());
+            result = "";
+        } catch (CancellationException e) {
+            result = ""; // on its deadline, logged by the task
+        }
+        inFlight.remove();
+        long writeStart = System.nanoTime();
+        if (index > 0) {
+            out.write(("\n" + BUNDLE_SEPARATOR + "\n").getBytes(StandardCharsets.UTF_8));
+        }
+        out.write(result.getBytes(StandardCharsets.UTF_8));
+        times.add(Stage.WRITE, System.nanoTime() - writeStart);
+    }
+
+    /**
+     * @param instance one problem of a bundle, header line included
+     * @return the solution, empty if the problem failed
+     */
+    private String solveInstance(ProblemReader instance, String name, StageTimes times) {
+        TaskEvents.Parse parse = new TaskEvents.Parse();
+        parse.begin();
+        long parseStart = System.nanoTime();
+        String algoName = instance.readLine();
+        AlgoSolver solver = getConcreteAlgoSolver(algoName);
+        if (solver == null) {
+            logger.error("{}: unknown algorithm {}.", name, algoName);
+            parseFailures.increment();
+            return "";
+        }
+        String result = solveOrGetCached(solver, algoName, instance, name, times, parseStart, parse);
+        return result == null ? "" : result;
+    }
+
+    /**
+     * Parses and solves in a solve slot. Waiting for the slot counts as queue time, and not against the deadline.
+     * @return the solution, or null if the problem can't be parsed
+     */
+    private String solve(AlgoSolver solver, String algoName, ProblemReader reader, String filePath, StageTimes times,
+                         TaskEvents.Parse parse) {
+        long waitStart = System.nanoTime();
+        DeadlineTask<?> task = runningTask.get();
+        if (task != null) {
+            task.pauseDeadline();
+        }
+        SolveSlots.Slot slot;
+        try {
+            slot = solveSlots.acquire(estimateCost(solver, reader));
+        } finally {
+            if (task != null) {
+                task.resumeDeadline();
+            }
+        }
+        try (slot) {
+            long parseStart = System.nanoTime();
+            times.add(Stage.QUEUE, parseStart - waitStart);
+            logger.info("solving file <{}>", filePath);
+            boolean parsed = solver.parse(reader, filePath);
+            long solveStart = System.nanoTime();
+            times.add(Stage.PARSE, solveStart - parseStart);
+            commit(parse, filePath, algoName, false, parsed);
+            if (!parsed) {
+                parseFailures.increment();
+                return null;
+            }
+            try {
+                return solver.solveParsed();
+            } finally {
+                times.add(Stage.SOLVE, System.nanoTime() - solveStart);
+            }
+        }
+    }
+
+    /**
+     * @return the solver's estimate for the problem, 0 if it can't tell (the parse will fail fast)
+     */
+    private static long estimateCost(AlgoSolver solver, ProblemReader reader) {
+        try {
+            return solver.estimateCost(reader.duplicate());
+        } catch (NoSuchElementException | IndexOutOfBoundsException | NumberFormatException e) {
+            return 0;
+        }
+    }
+
+    /**
+     * @return the solver's estimate from the sizes in the file, 0 if it can't tell (the task will fail fast)
+     */
+    private long estimateCost(String filePath) {
+        try (FileChannel channel = FileChannel.open(Path.of(filePath), StandardOpenOption.READ)) {
+            if (!filePath.endsWith(".txt") || channel.size() > FILE_SIZE_LIMIT) {
+                return 0;
+            }
+            ProblemReader reader = ProblemReader.map(channel);
+            String algoName = reader.readLine();
+            if (getAlgoKey(algoName).equals(BUNDLE)) {
+                long cost = 0;
+                for (ProblemReader instance; (instance = reader.nextSection(BUNDLE_SEPARATOR)) != null; ) {
+                    AlgoSolver solver = getConcreteAlgoSolver(instance.readLine());
+                    cost += solver == null ? 0 : solver.estimateCost(instance);
+                }
+                return cost;
+            }
+            AlgoSolver solver = getConcreteAlgoSolver(algoName);
+            return solver == null ? 0 : solver.estimateCost(reader);
+        } catch (IOException | NoSuchElementException | NumberFormatException e) {
+            return 0;
+        }
+    }
+
+    /**
+     * @return whether a solution was already appended to the file
+     */
+    public static boolean hasSolution(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            return channel.size() <= FILE_SIZE_LIMIT && ProblemReader.map(channel).contains(SOLUTION_MARKER);
         }
+    }
 
-        return content;
+    private static void commit(TaskEvents.Parse parse, String filePath, String algoName, boolean cached, boolean valid) {
+        if (parse.shouldCommit()) {
+            parse.file = filePath;
+            parse.algorithm = algoName.strip();
+            parse.cached = cached;
+            parse.valid = valid;
+            parse.commit();
+        }
     }
 
-    private void appendResultToFile(String result, FileWriter fw, String filePath) {
+    private void appendResultToFile(String result, FileChannel channel, String filePath) {
         logger.info("insert result to file <{}>", filePath);
+        TaskEvents.Write write = new TaskEvents.Write();
+        write.begin();
         try {
-            fw.write("\nSolution:\n" + result);
+            byte[] bytes = (SOLUTION_MARKER + result).getBytes(StandardCharsets.UTF_8);
+            channel.write(ByteBuffer.wrap(bytes), channel.size());
+            if (write.shouldCommit()) {
+                write.file = filePath;
+                write.bytes = bytes.length;
+                write.commit();
+            }
         } catch (IOException e) {
             logger.error("filename <{}>: {}", filePath, e);
         }
     }
 
     private AlgoSolver getConcreteAlgoSolver(String name) {
-        String algoName = name.strip().toLowerCase().replace("-", "");
+        String algoName = getAlgoKey(name);
         Supplier<AlgoSolver> algoSolverSupplier = algorithmSolvers.get(algoName);
         if (algoSolverSupplier == null) {
             return null;
@@ -199,6 +714,10 @@ public class AlgoInputHandler implements EventSubscriber, EventEmitter {
         return algoSolverSupplier.get();
     }
 
+    private static String getAlgoKey(String name) {
+        return name.strip().toLowerCase().replace("-", "");
+    }
+
     private boolean validateFile(String filename) throws IOException {
         if (!filename.endsWith(".txt")) {
             logger.error("skipping {}. can only handle .txt files", filename);
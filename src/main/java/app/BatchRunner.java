@@ -0,0 +1,130 @@
+package app;
+
+import com.google.common.math.Quantiles;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import events.Event;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+
+/**
+ * Solves every input file under a directory tree once and exits, without the watcher and the events
+ * (Main --batch dir).
+ * <p>
+ * The tree is walked lazily and the files are handled by AlgoInputHandler on app.batch.threads workers (default one
+ * per core), each on the handler's task deadline, with a bounded number of files in flight, so an archive of any size
+ * is never listed in memory.
+ * Files that already have a solution are skipped, so an interrupted batch can just be run again.
+ */
+public class BatchRunner {
+    private static final Logger logger = LoggerFactory.getLogger(BatchRunner.class);
+    private static final int MAX_LISTED_FAILURES = 20;
+
+    private final AlgoInputHandler handler;
+    private final int threads;
+
+    public record Summary(int files, int solved, int skipped, List<String> failures, long elapsedNanos,
+                          Map<Integer, Double> latencyMsPercentiles) {
+
+        public double filesPerSecond() {
+            return elapsedNanos == 0 ? 0 : files * 1e9 / elapsedNanos;
+        }
+
+        public void print(PrintStream out) {
+            out.printf("%d files in %.1f s (%.1f files/s): %d solved, %d already solved, %d failed%n",
+                    files, elapsedNanos / 1e9, filesPerSecond(), solved, skipped, failures.size());
+            if (!latencyMsPercentiles.isEmpty()) {
+                out.printf("latency ms: p50 %.2f, p90 %.2f, p99 %.2f, max %.2f%n", latencyMsPercentiles.get(50),
+                        latencyMsPercentiles.get(90), latencyMsPercentiles.get(99), latencyMsPercentiles.get(100));
+            }
+            failures.stream().limit(MAX_LISTED_FAILURES).forEach(failure -> out.println("failed: " + failure));
+            if (failures.size() > MAX_LISTED_FAILURES) {
+                out.printf("... and %d more failures%n", failures.size() - MAX_LISTED_FAILURES);
+            }
+        }
+    }
+
+    public BatchRunner(AlgoInputHandler handler) {
+        this(handler, Integer.getInteger("app.batch.threads", Runtime.getRuntime().availableProcessors()));
+    }
+
+    public BatchRunner(AlgoInputHandler handler, int threads) {
+        this.handler = handler;
+        this.threads = threads;
+    }
+
+    public Summary run(Path root) throws IOException, InterruptedException {
+        logger.info("batch of {} started, {} threads", root, threads);
+        ExecutorService workers = Executors.newFixedThreadPool(threads,
+                new ThreadFactoryBuilder().setNameFormat("batch-worker-%d").build());
+        // a few files per worker in flight, so the walk doesn't run ahead of the solving
+        Semaphore inFlight = new Semaphore(threads * 4);
+        AtomicInteger files = new AtomicInteger();
+        AtomicInteger solved = new AtomicInteger();
+        AtomicInteger skipped = new AtomicInteger();
+        List<String> failures = Collections.synchronizedList(new ArrayList<>());
+        List<Long> latencies = Collections.synchronizedList(new ArrayList<>());
+
+        long startTime = System.nanoTime();
+        try (Stream<Path> walk = Files.walk(root)) {
+            for (Path file : (Iterable<Path>) walk.filter(DirectoryWatcher::isInputFile)::iterator) {
+                inFlight.acquire();
+                files.incrementAndGet();
+                workers.execute(() -> {
+                    long fileStartTime = System.nanoTime();
+                    String result = "";
+                    try {
+                        result = solve(file);
+                    } finally {
+                        // also when an Error escapes: the file counts as failed
+                        latencies.add(System.nanoTime() - fileStartTime);
+                        switch (result) {
+                            case AlgoInputHandler.SKIPPED -> skipped.incrementAndGet();
+                            case "", "unknown", AlgoInputHandler.TIMEOUT -> failures.add(file + " (" + (result.isEmpty() ? "error" : result) + ")");
+                            default -> solved.incrementAndGet();
+                        }
+                        inFlight.release();
+                    }
+                });
+            }
+        } catch (UncheckedIOException e) {
+            // the walk failed part way, e.g. a directory removed under it: report what was done
+            logger.error("walk of {} failed", root, e.getCause());
+        } finally {
+            workers.shutdown();
+            workers.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+        }
+        long elapsed = System.nanoTime() - startTime;
+
+        Map<Integer, Double> percentiles;
+        synchronized (latencies) {
+            percentiles = latencies.isEmpty() ? Map.of() : Quantiles.percentiles().indexes(50, 90, 99, 100)
+                    .compute(latencies.stream().mapToDouble(nanos -> nanos / 1e6).toArray());
+        }
+        Summary summary = new Summary(files.get(), solved.get(), skipped.get(), List.copyOf(failures), elapsed, percentiles);
+        logger.info("batch of {} done: {} files, {} failed", root, summary.files(), summary.failures().size());
+        return summary;
+    }
+
+    /**
+     * Each file on the handler's task deadline, so one pathological file can't hold a worker forever.
+     */
+    private String solve(Path file) {
+        return handler.handleEventWithDeadline(file.toString(), Event.FILE_CREATED);
+    }
+}
@@ -9,10 +9,25 @@ import org.slf4j.LoggerFactory;
 
 import java.io.File;
 import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.nio.file.*;
 import java.util.HashMap;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
-
+/**
+ * Emits FILE_CREATED for the files created in dir.
+ * <p>
+ * Files that arrive while nobody is watching are picked up by a scan of the directory: on start (files dropped while
+ * the service was down) and after a watch OVERFLOW (events lost). Scans skip the files that already have a solution
+ * and check the backlog in parallel (app.scan.threads, default one per core), so thousands of files catch up quickly.
+ */
 public class DirectoryWatcher implements EventEmitter {
     private static final Logger logger = LoggerFactory.getLogger(DirectoryWatcher.class);
     private static final HashMap<WatchEvent.Kind, Event> eventsMap = new HashMap<>(){{
@@ -22,6 +37,13 @@ public class DirectoryWatcher implements EventEmitter {
 
     private final Path dir;
     private final Publisher publisher;
+    private final ExecutorService scanner = Executors.newSingleThreadExecutor(r -> {
+        Thread thread = new Thread(r, "directory-scan");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final ForkJoinPool scanPool = new ForkJoinPool(
+            Integer.getInteger("app.scan.threads", Runtime.getRuntime().availableProcessors()));
 
     public DirectoryWatcher(Path dir, Publisher publisher) {
         this.dir = dir;
@@ -33,13 +55,20 @@ public class DirectoryWatcher implements EventEmitter {
         logger.info("started in {}", dir);
         var fs = FileSystems.getDefault();
         WatchService watchService = fs.newWatchService();
-        this.dir.register(watchService, StandardWatchEventKinds.ENTRY_CREATE);
+        this.dir.register(watchService, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY);
+        // after registering, so nothing falls in between (a file seen by both is only queued once)
+        scanner.execute(() -> scan("startup"));
 
         while (true){
             WatchKey watchKey = watchService.take();
             for (WatchEvent<?> watchEvent : watchKey.pollEvents()) {
                 var file = watchEvent.context();
                 WatchEvent.Kind<?> kind = watchEvent.kind();
+                if (kind == StandardWatchEventKinds.OVERFLOW){
+                    logger.warn("watch events lost (OVERFLOW), scanning {}", dir);
+                    scanner.execute(() -> scan("overflow"));
+                    continue;
+                }
                 String filename = file.toString();
                 if (new File(filename).isHidden() || filename.endsWith("~")){
                     continue;
@@ -52,6 +81,7 @@ public class DirectoryWatcher implements EventEmitter {
                 }
 
                 Path filePath = Path.of(dir.toString(), filename);
+                received(filePath.toString(), kind.name());
                 EventData eventData = new EventData(event, filePath.toString());
                 emit(eventData);
             }
@@ -59,6 +89,65 @@ public class DirectoryWatcher implements EventEmitter {
         }
     }
 
+    /**
+     * Emits FILE_CREATED for every .txt file in dir without a solution.
+     */
+    public void scan(String reason) {
+        long startTime = System.currentTimeMillis();
+        List<Path> files;
+        try (Stream<Path> list = Files.list(dir)) {
+            files = list.filter(DirectoryWatcher::isInputFile).collect(Collectors.toList());
+        } catch (IOException e) {
+            logger.error("{} scan of {} failed", reason, dir, e);
+            return;
+        }
+
+        AtomicInteger solved = new AtomicInteger();
+        AtomicInteger failed = new AtomicInteger();
+        try {
+            scanPool.submit(() -> files.parallelStream().forEach(file -> {
+                try {
+                    if (AlgoInputHandler.hasSolution(file)){
+                        solved.incrementAndGet();
+                        return;
+                    }
+                    received(file.toString(), reason + " scan");
+                    emit(new EventData(Event.FILE_CREATED, file.toString()));
+                } catch (IOException | UncheckedIOException e) {
+                    failed.incrementAndGet();
+                    logger.error("{} scan: can't read {}", reason, file, e);
+                }
+            })).get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return;
+        } catch (ExecutionException e) {
+            logger.error("{} scan of {} failed", reason, dir, e.getCause());
+            return;
+        }
+
+        logger.info("{} scan: {} files, {} already solved, {} unreadable, {} queued ({} ms)", reason, files.size(),
+                solved.get(), failed.get(), files.size() - solved.get() - failed.get(), System.currentTimeMillis() - startTime);
+    }
+
+    private static void received(String file, String kind) {
+        TaskEvents.WatchEventReceived event = new TaskEvents.WatchEventReceived();
+        if (event.shouldCommit()){
+            event.file = file;
+            event.kind = kind;
+            event.commit();
+        }
+    }
+
+    static boolean isInputFile(Path file) {
+        String filename = file.getFileName().toString();
+        try {
+            return filename.endsWith(".txt") && Files.isRegularFile(file) && !Files.isHidden(file);
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
     @Override
     public void emit(EventData eventData) {
         publisher.notifyListeners(eventData);
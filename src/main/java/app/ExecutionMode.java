@@ -0,0 +1,56 @@
+package app;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * What the task workers run on (app.execution = platform / virtual, default platform).
+ * <p>
+ * PLATFORM: a few platform threads, each task (file I/O and solving) holds one.
+ * VIRTUAL: many workers on virtual threads, so tasks blocked on file I/O are cheap.
+ * In both modes a task parses and solves only in a {@link SolveSlots} slot (one per core by default), held for just
+ * that, and handed out cheapest task first; the solvers' tables are limited by the {@link algo.MemoryBudget}.
+ * Virtual threads need Java 21+; on an older runtime VIRTUAL falls back to platform threads, with the same limits.
+ */
+public enum ExecutionMode {
+    PLATFORM, VIRTUAL;
+
+    private static final Logger logger = LoggerFactory.getLogger(ExecutionMode.class);
+
+    public static ExecutionMode fromSystemProperties() {
+        return "virtual".equalsIgnoreCase(System.getProperty("app.execution", "platform").strip()) ? VIRTUAL : PLATFORM;
+    }
+
+    /**
+     * app.scheduler.workers (default 3, or 64 for VIRTUAL)
+     */
+    public int workers() {
+        return Integer.getInteger("app.scheduler.workers", this == VIRTUAL ? 64 : 3);
+    }
+
+    /**
+     * app.execution.solveSlots (default: one per core)
+     */
+    public int solveSlots() {
+        return Integer.getInteger("app.execution.solveSlots", Runtime.getRuntime().availableProcessors());
+    }
+
+    public ThreadFactory threadFactory(String nameFormat) {
+        if (this == VIRTUAL) {
+            try {
+                // Thread.ofVirtual().name(prefix, 0).factory(), without compiling against Java 21
+                Class<?> builderClass = Class.forName("java.lang.Thread$Builder");
+                Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+                builder = builderClass.getMethod("name", String.class, long.class)
+                        .invoke(builder, nameFormat.replace("%d", ""), 0L);
+                return (ThreadFactory) builderClass.getMethod("factory").invoke(builder);
+            } catch (ReflectiveOperationException e) {
+                logger.warn("no virtual threads on Java {}, using platform threads", Runtime.version().feature());
+            }
+        }
+        return new ThreadFactoryBuilder().setNameFormat(nameFormat).build();
+    }
+}
@@ -1,7 +1,11 @@
 package app;
 
+import algo.MemoryBudget;
+import algo.SolverCounters;
 import events.Event;
 import events.Publisher;
+import monitor.Metrics;
+import monitor.MetricsServer;
 import monitor.StatsMonitor;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -13,25 +17,101 @@ import java.nio.file.Path;
 public class Main {
     private static final Logger logger = LoggerFactory.getLogger(Main.class);
     private static String dir = "./input files";
+    /** monitor.metricsPort, negative for none */
+    private static final int METRICS_PORT = Integer.getInteger("monitor.metricsPort", 8012);
+    /** monitor.metricsHost, the address the metrics are served on (default loopback only) */
+    private static final String METRICS_HOST = System.getProperty("monitor.metricsHost", "127.0.0.1");
+    /** app.cluster: share the directory with other instances watching it */
+    private static final boolean CLUSTER = Boolean.getBoolean("app.cluster");
 
     public static void main(String[] args) {
+        if (args.length > 0 && args[0].equals("--batch")) {
+            if (args.length > 1) {
+                dir = args[1];
+            }
+            Path dirPath = Path.of(dir);
+            validate(dirPath);
+            runBatch(dirPath);
+            return;
+        }
         if (args.length > 0) {
             dir = args[0];
         }
         Path dirPath = Path.of(dir);
         validate(dirPath);
+        if (CLUSTER && !WorkClaims.hasStableNodeId()) {
+            // the spill journal is kept under the node id: with pid@host a restart would orphan it
+            logger.error("cluster mode needs a node id that stays the same across restarts (-Dapp.node.id)");
+            System.exit(1);
+        }
 
         // di
         Publisher publisher = new Publisher();
         DirectoryWatcher watcher = new DirectoryWatcher(dirPath, publisher);
-        AlgoInputHandler algoInputHandler = new AlgoInputHandler(publisher);
+        WriteCompletionDetector writeCompletionDetector = new WriteCompletionDetector(publisher);
+        WorkClaims claims = CLUSTER ? WorkClaims.fromSystemProperties(dirPath, publisher) : null;
+        AlgoInputHandler algoInputHandler = new AlgoInputHandler(publisher, SolutionCache.fromSystemProperties(),
+                TaskScheduler::fromSystemProperties, claims);
         StatsMonitor statsMonitor = new StatsMonitor(8011, 8010);
 
-        publisher.subscribe(Event.FILE_CREATED, algoInputHandler);
+        publisher.subscribe(Event.FILE_CREATED, writeCompletionDetector);
+        publisher.subscribe(Event.FILE_CHANGED, writeCompletionDetector);
+        publisher.subscribe(Event.FILE_READY, algoInputHandler);
         publisher.subscribe(Event.TASK_STATS, statsMonitor);
+        writeCompletionDetector.start();
+        if (claims != null) {
+            claims.start();
+        }
+
+        Metrics metrics = new Metrics();
+        algoInputHandler.registerMetrics(metrics);
+        if (claims != null) {
+            claims.registerMetrics(metrics);
+        }
+        registerMetrics(metrics, publisher, writeCompletionDetector);
 
         // init
         initServices(watcher, algoInputHandler, statsMonitor);
+        startMetricsServer(metrics);
+    }
+
+    private static void registerMetrics(Metrics metrics, Publisher publisher, WriteCompletionDetector writeCompletionDetector) {
+        MemoryBudget memoryBudget = MemoryBudget.global();
+        metrics.counter("algo_solver_events_dropped_total", "events dropped by the publisher's overflow policies", publisher::droppedCount)
+                .gauge("algo_solver_files_being_written", "files waiting for their write to complete", writeCompletionDetector::size)
+                .counter("algo_solver_problems_solved_total", "problems solved (cache hits not included)", SolverCounters::problems)
+                .counter("algo_solver_problem_cells_total", "full DP table cells (n*(C+1), m*n) of the problems solved, whichever engine "
+                        + "solved them: problem size, not work done", SolverCounters::cells)
+                .counter("algo_solver_dp_table_bytes_total", "bytes leased for DP tables from the memory budget", memoryBudget::leasedBytes)
+                .gauge("algo_solver_dp_table_bytes_in_use", "bytes of the memory budget leased now",
+                        () -> memoryBudget.totalBytes() - memoryBudget.availableBytes());
+    }
+
+    private static void startMetricsServer(Metrics metrics) {
+        if (METRICS_PORT < 0) {
+            return;
+        }
+        try {
+            new MetricsServer(metrics, METRICS_HOST, METRICS_PORT).start();
+        } catch (IOException e) {
+            logger.error("no metrics endpoint ({}:{})", METRICS_HOST, METRICS_PORT, e);
+        }
+    }
+
+    /**
+     * Solves the files under dirPath once, prints the summary and exits (1 if any file failed).
+     */
+    private static void runBatch(Path dirPath) {
+        BatchRunner.Summary summary;
+        try {
+            summary = new BatchRunner(new AlgoInputHandler(new Publisher())).run(dirPath);
+        } catch (IOException | InterruptedException e) {
+            logger.error("batch failed", e);
+            System.exit(1);
+            return;
+        }
+        summary.print(System.out);
+        System.exit(summary.failures().isEmpty() ? 0 : 1);
     }
 
     private static void initServices(DirectoryWatcher watcher, AlgoInputHandler algoInputHandler, StatsMonitor statsMonitor) {
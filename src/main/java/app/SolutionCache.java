@@ -0,0 +1,184 @@
+package app;
+
+import algo.ProblemReader;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.RemovalCause;
+import com.google.common.io.BaseEncoding;
+import monitor.CacheStats;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Solutions by content: SHA-256 of the algorithm name and the normalized problem content.
+ * <p>
+ * Bounded by total solution size and by age. With an index file, every solution is also appended there
+ * (key, time, base64 solution per line) and loaded back on start, so hits survive restarts. Entries older than
+ * maxAge are skipped on load, the rest start a new maxAge in memory.
+ * The index is compacted on load and whenever it holds twice as many lines as the cache.
+ */
+public class SolutionCache {
+    private static final Logger logger = LoggerFactory.getLogger(SolutionCache.class);
+    private static final BaseEncoding base64 = BaseEncoding.base64();
+
+    private final Cache<String, Entry> cache;
+    private final Duration maxAge;
+    private final Path index;
+    private final AtomicLong evictions = new AtomicLong();
+    private BufferedWriter indexWriter;
+    private long indexLines = 0;
+
+    private record Entry(String solution, long createdAt) {
+    }
+
+    /**
+     * @param maxBytes total size of the cached solutions (chars), 0 keeps nothing
+     * @param index file to persist solutions to, or null
+     */
+    public SolutionCache(long maxBytes, Duration maxAge, Path index) {
+        this.maxAge = maxAge;
+        this.index = index;
+        this.cache = CacheBuilder.newBuilder()
+                .maximumWeight(maxBytes)
+                .<String, Entry>weigher((key, entry) -> key.length() + entry.solution.length())
+                .expireAfterWrite(maxAge)
+                .removalListener(notification -> {
+                    if (notification.getCause() == RemovalCause.SIZE || notification.getCause() == RemovalCause.EXPIRED) {
+                        evictions.incrementAndGet();
+                    }
+                })
+                .recordStats()
+                .build();
+
+        if (index != null) {
+            loadIndex();
+        }
+    }
+
+    /**
+     * app.cache.maxBytes (default 64 MB), app.cache.maxAgeMinutes (default 60), app.cache.index (default: none)
+     */
+    public static SolutionCache fromSystemProperties() {
+        String index = System.getProperty("app.cache.index");
+        return new SolutionCache(Long.getLong("app.cache.maxBytes", 64L * 1024 * 1024),
+                Duration.ofMinutes(Long.getLong("app.cache.maxAgeMinutes", 60)),
+                index == null || index.isBlank() ? null : Path.of(index));
+    }
+
+    /**
+     * @param reader positioned after the header line, not moved
+     */
+    public static String key(String algoName, ProblemReader reader) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            digest.update(algoName.getBytes(StandardCharsets.UTF_8));
+            digest.update((byte) '\n');
+            reader.digestRest(digest);
+            return BaseEncoding.base16().lowerCase().encode(digest.digest());
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e); // every JDK has SHA-256
+        }
+    }
+
+    public String get(String key) {
+        Entry entry = cache.getIfPresent(key);
+        return entry == null ? null : entry.solution;
+    }
+
+    public void put(String key, String solution) {
+        Entry entry = new Entry(solution, System.currentTimeMillis());
+        cache.put(key, entry);
+        if (index != null) {
+            appendToIndex(key, entry);
+        }
+    }
+
+    public CacheStats stats() {
+        com.google.common.cache.CacheStats stats = cache.stats();
+        return new CacheStats(stats.hitCount(), stats.missCount(), evictions.get(), cache.size());
+    }
+
+    private synchronized void appendToIndex(String key, Entry entry) {
+        try {
+            if (indexWriter == null || indexLines >= 2 * Math.max(cache.size(), 1)) {
+                compactIndex();
+            }
+            indexWriter.write(line(key, entry));
+            indexWriter.flush();
+            indexLines++;
+        } catch (IOException e) {
+            logger.error("can't write to cache index {}", index, e);
+        }
+    }
+
+    /**
+     * Skips the lines it can't read (e.g. cut short by a crash), which the compaction then drops.
+     */
+    private synchronized void loadIndex() {
+        long oldest = System.currentTimeMillis() - maxAge.toMillis();
+        try {
+            if (Files.exists(index)) {
+                List<String> lines = Files.readAllLines(index, StandardCharsets.UTF_8);
+                int skipped = 0;
+                for (String line : lines) {
+                    String[] parts = line.split("\t", -1); // keeps an empty solution
+                    if (parts.length != 3) {
+                        skipped++;
+                        continue;
+                    }
+                    try {
+                        long createdAt = Long.parseLong(parts[1]);
+                        if (createdAt >= oldest) {
+                            cache.put(parts[0], new Entry(new String(base64.decode(parts[2]), StandardCharsets.UTF_8), createdAt));
+                        }
+                    } catch (IllegalArgumentException e) {
+                        skipped++;
+                    }
+                }
+                if (skipped > 0) {
+                    logger.warn("skipped {} malformed lines of cache index {}", skipped, index);
+                }
+                logger.info("loaded {} solutions from cache index {}", cache.size(), index);
+            }
+            compactIndex();
+        } catch (IOException e) {
+            logger.error("can't load cache index {}", index, e);
+        }
+    }
+
+    /**
+     * Rewrites the index with the cached entries only, then keeps appending to it.
+     */
+    private void compactIndex() throws IOException {
+        if (indexWriter != null) {
+            indexWriter.close();
+        }
+        Path tmp = index.resolveSibling(index.getFileName() + ".tmp");
+        try (BufferedWriter writer = Files.newBufferedWriter(tmp, StandardCharsets.UTF_8)) {
+            for (Map.Entry<String, Entry> e : cache.asMap().entrySet()) {
+                writer.write(line(e.getKey(), e.getValue()));
+            }
+        }
+        Files.move(tmp, index, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        indexLines = cache.size();
+        indexWriter = Files.newBufferedWriter(index, StandardCharsets.UTF_8, StandardOpenOption.APPEND);
+    }
+
+    private static String line(String key, Entry entry) {
+        return key + "\t" + entry.createdAt + "\t" + base64.encode(entry.solution.getBytes(StandardCharsets.UTF_8)) + "\n";
+    }
+}
@@ -0,0 +1,170 @@
+package app;
+
+import java.util.Comparator;
+import java.util.PriorityQueue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Admission of the solvers by CPU: a task holds a slot only while it parses and solves, not while it reads its file,
+ * claims it or writes the solution, so tasks blocked on I/O don't keep the cores from the others.
+ * <p>
+ * The slots go to the waiting tasks cheapest first, by the same virtual deadline as the {@link TaskScheduler}:
+ * request time + cost / costPerMs, then first come first served. Tasks with cost >= largeCost hold at most
+ * slots - 1 slots at a time, so a small task always gets one soon (with one slot, the two take turns by deadline).
+ */
+public class SolveSlots {
+    private static final Comparator<Waiter> byDeadline = Comparator.comparingLong((Waiter waiter) -> waiter.deadline)
+            .thenComparingLong(waiter -> waiter.sequence);
+
+    private static class Waiter {
+        final long deadline;
+        final long sequence;
+        final boolean large;
+        boolean granted = false;
+
+        Waiter(long deadline, long sequence, boolean large) {
+            this.deadline = deadline;
+            this.sequence = sequence;
+            this.large = large;
+        }
+    }
+
+    private final int maxLarge;
+    private final long largeCost;
+    private final long costPerMs;
+    private final PriorityQueue<Waiter> small = new PriorityQueue<>(byDeadline);
+    private final PriorityQueue<Waiter> large = new PriorityQueue<>(byDeadline);
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition grantedSome = lock.newCondition();
+    private final AtomicInteger waiting = new AtomicInteger();
+    private int free;
+    private int runningLarge = 0;
+    private long sequence = 0;
+
+    /**
+     * @param slots solvers running at once
+     * @param largeCost tasks of at least this cost are large
+     * @param costPerMs cost solved per ms, roughly: how much of a head start the cost is worth
+     */
+    public SolveSlots(int slots, long largeCost, long costPerMs) {
+        if (slots < 1 || costPerMs < 1){
+            throw new IllegalArgumentException("slots = " + slots + ", costPerMs = " + costPerMs);
+        }
+        this.free = slots;
+        this.maxLarge = Math.max(slots - 1, 1);
+        this.largeCost = largeCost;
+        this.costPerMs = costPerMs;
+    }
+
+    /**
+     * {@link ExecutionMode#solveSlots()} slots, app.scheduler.largeCost (default 16M), app.scheduler.costPerMs (default 100K)
+     */
+    public static SolveSlots fromSystemProperties() {
+        return new SolveSlots(ExecutionMode.fromSystemProperties().solveSlots(),
+                Long.getLong("app.scheduler.largeCost", 16L * 1024 * 1024),
+                Long.getLong("app.scheduler.costPerMs", 100_000));
+    }
+
+    /**
+     * Blocks until the task's turn.
+     * @param cost the estimate the task was scheduled by
+     * @throws CancellationException if the thread is interrupted while waiting
+     */
+    public Slot acquire(long cost) {
+        boolean isLarge = cost >= largeCost;
+        lock.lock();
+        try {
+            Waiter waiter = new Waiter(System.currentTimeMillis() + Math.max(cost, 0) / costPerMs, sequence++, isLarge);
+            (isLarge ? large : small).add(waiter);
+            grant();
+            if (!waiter.granted){
+                waiting.incrementAndGet();
+                try {
+                    while (!waiter.granted){
+                        grantedSome.await();
+                    }
+                } catch (InterruptedException e) {
+                    if (waiter.granted){
+                        release(waiter);
+                    } else {
+                        (isLarge ? large : small).remove(waiter);
+                    }
+                    Thread.currentThread().interrupt();
+                    throw new CancellationException("interrupted waiting for a solve slot");
+                } finally {
+                    waiting.decrementAndGet();
+                }
+            }
+            return new Slot(waiter);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @return tasks waiting for a slot
+     */
+    public int waitingCount() {
+        return waiting.get();
+    }
+
+    /**
+     * Hands the free slots to the waiters, by deadline. Called with the lock held.
+     */
+    private void grant() {
+        boolean any = false;
+        while (free > 0){
+            boolean largeReady = !large.isEmpty() && runningLarge < maxLarge;
+            Waiter next;
+            if (largeReady && (small.isEmpty() || byDeadline.compare(large.peek(), small.peek()) < 0)){
+                next = large.poll();
+                runningLarge++;
+            } else if (!small.isEmpty()){
+                next = small.poll();
+            } else {
+                break;
+            }
+            next.granted = true;
+            free--;
+            any = true;
+        }
+        if (any){
+            grantedSome.signalAll();
+        }
+    }
+
+    /**
+     * Called with the lock held.
+     */
+    private void release(Waiter waiter) {
+        free++;
+        if (waiter.large){
+            runningLarge--;
+        }
+        grant();
+    }
+
+    public class Slot implements AutoCloseable {
+        private Waiter waiter;
+
+        private Slot(Waiter waiter) {
+            this.waiter = waiter;
+        }
+
+        @Override
+        public void close() {
+            lock.lock();
+            try {
+                if (waiter != null){
+                    release(waiter);
+                    waiter = null;
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+}
@@ -0,0 +1,272 @@
+package app;
+
+import events.Event;
+import events.EventData;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * FIFO of events, in memory up to a capacity and spilled to an append-only journal file after that. Spilled events
+ * are replayed in order as the memory part drains, so a burst is never dropped.
+ * <p>
+ * The journal holds one event per line (event, tab, path). The replay position is kept in a side file, so after a
+ * restart the events left in the journal are replayed and the ones already taken are not.
+ * Once everything is replayed the journal is truncated.
+ * <p>
+ * Any number of producers, one consumer.
+ */
+public class SpillQueue {
+    private static final Logger logger = LoggerFactory.getLogger(SpillQueue.class);
+
+    private final BlockingQueue<EventData> memory;
+    private final Path journal;
+    private final Path offsetFile;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final AtomicLong spilled = new AtomicLong();
+    private final AtomicLong replayed = new AtomicLong();
+    private FileChannel channel;
+    private long readOffset = 0;
+    /** events in the journal, not replayed yet */
+    private volatile int pending = 0;
+
+    /**
+     * @param journal file for the events over capacity, created on the first spill
+     */
+    public SpillQueue(int capacity, Path journal) {
+        this.memory = new LinkedBlockingQueue<>(capacity);
+        this.journal = journal;
+        this.offsetFile = journal.resolveSibling(journal.getFileName() + ".offset");
+        if (Files.exists(journal)) {
+            recover();
+        }
+    }
+
+    /**
+     * app.queue.journal (default: algo-solver/spill.journal in the temp directory)
+     */
+    public static SpillQueue fromSystemProperties(int capacity) {
+        return fromSystemProperties(capacity, null);
+    }
+
+    /**
+     * @param nodeId if not null, the journal is named after the node (e.g. spill.journal.node-1): a stable id
+     *               (app.node.id), so that a restarted node replays its own journal
+     */
+    public static SpillQueue fromSystemProperties(int capacity, String nodeId) {
+        String journal = System.getProperty("app.queue.journal");
+        Path path = journal == null || journal.isBlank()
+                ? Path.of(System.getProperty("java.io.tmpdir"), "algo-solver", "spill.journal")
+                : Path.of(journal);
+        if (nodeId != null) {
+            path = path.resolveSibling(path.getFileName() + "." + nodeId.replaceAll("[^A-Za-z0-9._-]", "_"));
+        }
+        return new SpillQueue(capacity, path);
+    }
+
+    /**
+     * Never drops: if the journal can't be written either, waits for room in memory.
+     */
+    public void put(EventData eventData) throws InterruptedException {
+        lock.lock();
+        try {
+            // while anything is spilled, new events go behind it
+            if (pending == 0 && memory.offer(eventData)) {
+                return;
+            }
+            if (spill(eventData)) {
+                return;
+            }
+        } finally {
+            lock.unlock();
+        }
+        memory.put(eventData);
+    }
+
+    public EventData take() throws InterruptedException {
+        while (true) {
+            EventData eventData = memory.poll();
+            if (eventData != null) {
+                return eventData;
+            }
+
+            lock.lock();
+            try {
+                if (pending > 0) {
+                    replay();
+                    continue;
+                }
+            } finally {
+                lock.unlock();
+            }
+            // nothing spilled, so producers put into memory
+            return memory.take();
+        }
+    }
+
+    /**
+     * @return events waiting in memory
+     */
+    public int size() {
+        return memory.size();
+    }
+
+    /**
+     * @return events waiting in the journal
+     */
+    public int spilledSize() {
+        return pending;
+    }
+
+    /**
+     * @return events spilled to the journal, in total
+     */
+    public long spilledCount() {
+        return spilled.get();
+    }
+
+    /**
+     * @return events replayed from the journal, in total
+     */
+    public long replayedCount() {
+        return replayed.get();
+    }
+
+    private boolean spill(EventData eventData) {
+        try {
+            if (channel == null) {
+                Files.createDirectories(journal.toAbsolutePath().getParent());
+                channel = FileChannel.open(journal, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            }
+            if (pending == 0) {
+                logger.warn("queue full, spilling events to {}", journal);
+            }
+            ByteBuffer line = ByteBuffer.wrap((eventData.getEvent() + "\t" + eventData.getData() + "\n").getBytes(StandardCharsets.UTF_8));
+            long position = channel.size();
+            while (line.hasRemaining()) {
+                position += channel.write(line, position);
+            }
+            pending++;
+            spilled.incrementAndGet();
+            return true;
+        } catch (IOException e) {
+            logger.error("can't write to journal {}, waiting for the queue instead", journal, e);
+            return false;
+        }
+    }
+
+    /**
+     * Moves events from the journal to memory, as many as fit. Called with the lock held.
+     */
+    private void replay() {
+        try {
+            ByteBuffer buffer = ByteBuffer.allocate(8192);
+            long offset = readOffset;
+            int replayedNow = 0;
+            boolean full = false;
+            while (pending > 0 && !full) {
+                buffer.clear();
+                int read = channel.read(buffer, offset);
+                if (read <= 0) {
+                    logger.error("journal {} ends before its last {} events", journal, pending);
+                    pending = 0;
+                    break;
+                }
+
+                byte[] bytes = buffer.array();
+                int start = 0;
+                for (int i=0; i < read && pending > 0; i++) {
+                    if (bytes[i] == '\n') {
+                        // offer: a producer that couldn't spill puts into memory without the lock
+                        if (!memory.offer(parse(new String(bytes, start, i - start, StandardCharsets.UTF_8)))) {
+                            full = true;
+                            break;
+                        }
+                        start = i + 1;
+                        pending--;
+                        replayedNow++;
+                    }
+                }
+                if (!full && start == 0 && read == buffer.capacity()) {
+                    buffer = ByteBuffer.allocate(buffer.capacity() * 2); // a line longer than the buffer
+                }
+                offset += start;
+            }
+
+            replayed.addAndGet(replayedNow);
+            if (pending == 0) {
+                channel.truncate(0);
+                offset = 0;
+                logger.info("replayed all spilled events from {}", journal);
+            }
+            readOffset = offset;
+            saveOffset();
+        } catch (IOException e) {
+            logger.error("can't replay journal {}, {} events lost", journal, pending, e);
+            pending = 0;
+        }
+    }
+
+    private static EventData parse(String line) {
+        int tab = line.indexOf('\t');
+        try {
+            return new EventData(Event.valueOf(line.substring(0, tab)), line.substring(tab + 1));
+        } catch (IllegalArgumentException | IndexOutOfBoundsException e) {
+            return new EventData(Event.UNKNOWN, line);
+        }
+    }
+
+    private void saveOffset() throws IOException {
+        Path tmp = offsetFile.resolveSibling(offsetFile.getFileName() + ".tmp");
+        Files.writeString(tmp, Long.toString(readOffset));
+        Files.move(tmp, offsetFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Picks up the events a previous run left in the journal.
+     */
+    private void recover() {
+        try {
+            channel = FileChannel.open(journal, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            if (Files.exists(offsetFile)) {
+                readOffset = Long.parseLong(Files.readString(offsetFile).strip());
+            }
+            if (readOffset > channel.size()) {
+                readOffset = 0;
+            }
+
+            ByteBuffer buffer = ByteBuffer.allocate(8192);
+            int count = 0;
+            for (long position = readOffset; ; position += buffer.limit()) {
+                buffer.clear();
+                if (channel.read(buffer, position) <= 0) {
+                    break;
+                }
+                buffer.flip();
+                while (buffer.hasRemaining()) {
+                    if (buffer.get() == '\n') {
+                        count++;
+                    }
+                }
+            }
+            pending = count;
+            if (count > 0) {
+                logger.info("{} spilled events to replay from {}", count, journal);
+            }
+        } catch (IOException | NumberFormatException e) {
+            logger.error("can't read journal {}", journal, e);
+        }
+    }
+}
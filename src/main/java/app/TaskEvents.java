@@ -0,0 +1,121 @@
+package app;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * JFR events of the task lifecycle, from the watch event to the solution written (the solve itself is algosolver.Solve).
+ * <p>
+ * They cost next to nothing unless a recording enables them, so they stay on in production: a continuous recording
+ * (e.g. -XX:StartFlightRecording:maxage=1h,dumponexit=true) then shows slow tasks next to the GC and CPU events.
+ * Fields are only filled in when the event will be committed.
+ */
+final class TaskEvents {
+    private TaskEvents() {
+    }
+
+    @Name("algosolver.WatchEvent")
+    @Label("Watch Event")
+    @Category({"Algo Solver", "Task"})
+    @Description("A file event from the watch service, or a file found by a scan")
+    @StackTrace(false)
+    static class WatchEventReceived extends Event {
+        @Label("File")
+        String file;
+
+        @Label("Kind")
+        String kind;
+    }
+
+    @Name("algosolver.Enqueue")
+    @Label("Enqueue")
+    @Category({"Algo Solver", "Task"})
+    @Description("An event queued for the handler")
+    @StackTrace(false)
+    static class Enqueue extends Event {
+        @Label("File")
+        String file;
+
+        @Label("Event")
+        String event;
+
+        @Label("Queue Depth")
+        @Description("Events waiting in memory, after this one")
+        int queueDepth;
+
+        @Label("Journal Depth")
+        @Description("Events waiting in the spill journal")
+        int journalDepth;
+    }
+
+    @Name("algosolver.Dequeue")
+    @Label("Dequeue")
+    @Category({"Algo Solver", "Task"})
+    @Description("An event taken by the handler and submitted as a task to the scheduler")
+    @StackTrace(false)
+    static class Dequeue extends Event {
+        @Label("File")
+        String file;
+
+        @Label("Lane")
+        String lane;
+
+        @Label("Estimated Cost")
+        long cost;
+
+        @Label("Tasks Waiting")
+        int tasksWaiting;
+    }
+
+    @Name("algosolver.Parse")
+    @Label("Parse")
+    @Category({"Algo Solver", "Task"})
+    @Description("Reading a file or bundle problem up to the solver: the header, the cache lookup and the solver's parse (and the wait for a solve slot, if any)")
+    @StackTrace(false)
+    static class Parse extends Event {
+        @Label("File")
+        String file;
+
+        @Label("Algorithm")
+        String algorithm;
+
+        @Label("Cached")
+        @Description("The solution was in the cache, so there's no solve")
+        boolean cached;
+
+        @Label("Valid")
+        boolean valid;
+    }
+
+    @Name("algosolver.Write")
+    @Label("Write")
+    @Category({"Algo Solver", "Task"})
+    @Description("Appending the solution to the file")
+    @StackTrace(false)
+    static class Write extends Event {
+        @Label("File")
+        String file;
+
+        @Label("Bytes")
+        @DataAmount
+        long bytes;
+    }
+
+    @Name("algosolver.Cancel")
+    @Label("Cancel")
+    @Category({"Algo Solver", "Task"})
+    @Description("A task cancelled on its deadline, or when its claim was lost")
+    @StackTrace(false)
+    static class Cancel extends Event {
+        @Label("File")
+        String file;
+
+        @Label("Reason")
+        String reason;
+    }
+}
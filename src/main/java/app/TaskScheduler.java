@@ -0,0 +1,211 @@
+package app;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Comparator;
+import java.util.PriorityQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Runs tasks on a fixed number of workers, cheapest first, by estimated cost.
+ * <p>
+ * Tasks are ordered by a virtual deadline: submit time + cost / costPerMs. A cheap task overtakes an expensive one
+ * submitted at most (cost difference / costPerMs) ms before it, but no more, so expensive tasks age to the front
+ * and can't starve. Same deadline: first come first served.
+ * <p>
+ * Tasks with cost >= largeCost go to the large lane, which can occupy at most largeWorkers workers at a time,
+ * so the small lane always has a worker (with a single worker, the lanes take turns by deadline).
+ * <p>
+ * A worker holds its task from reading the file to writing the solution; the solving itself is admitted by
+ * {@link SolveSlots}, in the same order.
+ */
+public class TaskScheduler {
+    private static final Logger logger = LoggerFactory.getLogger(TaskScheduler.class);
+
+    public enum Lane {
+        SMALL, LARGE
+    }
+
+    private record Entry(Runnable task, long deadline, long sequence) {
+    }
+
+    private static final Comparator<Entry> byDeadline = Comparator.comparingLong(Entry::deadline)
+            .thenComparingLong(Entry::sequence);
+
+    private final long largeCost;
+    private final long costPerMs;
+    private final int largeWorkers;
+    private final PriorityQueue<Entry> small = new PriorityQueue<>(byDeadline);
+    private final PriorityQueue<Entry> large = new PriorityQueue<>(byDeadline);
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition available = lock.newCondition();
+    private final Condition taken = lock.newCondition();
+    private final AtomicInteger active = new AtomicInteger();
+    private final LongAdder completed = new LongAdder();
+    private long sequence = 0;
+    private int runningLarge = 0;
+
+    /**
+     * @param largeCost tasks of at least this cost are large
+     * @param largeWorkers at most this many workers run large tasks at a time (< workers, or 1 with one worker)
+     * @param costPerMs cost solved per ms, roughly: how much of a head start the cost is worth
+     */
+    public TaskScheduler(int workers, int largeWorkers, long largeCost, long costPerMs) {
+        this(workers, largeWorkers, largeCost, costPerMs, new ThreadFactoryBuilder().setNameFormat("algo-worker-%d").build());
+    }
+
+    /**
+     * @param threadFactory for the workers
+     */
+    public TaskScheduler(int workers, int largeWorkers, long largeCost, long costPerMs, ThreadFactory threadFactory) {
+        if (workers < 1 || largeWorkers < 1 || largeWorkers > Math.max(workers - 1, 1) || costPerMs < 1){
+            throw new IllegalArgumentException("workers = " + workers + ", largeWorkers = " + largeWorkers
+                    + ", costPerMs = " + costPerMs);
+        }
+        this.largeCost = largeCost;
+        this.costPerMs = costPerMs;
+        this.largeWorkers = largeWorkers;
+
+        for (int i=0; i < workers; i++){
+            threadFactory.newThread(this::work).start();
+        }
+    }
+
+    /**
+     * {@link ExecutionMode#workers()} workers, on the mode's threads.
+     * app.scheduler.largeWorkers (default and at most workers - 1, at least 1),
+     * app.scheduler.largeCost (default 16M), app.scheduler.costPerMs (default 100K)
+     */
+    public static TaskScheduler fromSystemProperties() {
+        ExecutionMode mode = ExecutionMode.fromSystemProperties();
+        int workers = mode.workers();
+        int maxLarge = Math.max(workers - 1, 1);
+        int largeWorkers = Integer.getInteger("app.scheduler.largeWorkers", maxLarge);
+        if (largeWorkers > maxLarge){
+            logger.warn("app.scheduler.largeWorkers = {} leaves no worker to the small lane, using {}", largeWorkers, maxLarge);
+            largeWorkers = maxLarge;
+        }
+        return new TaskScheduler(workers, Math.max(largeWorkers, 1),
+                Long.getLong("app.scheduler.largeCost", 16L * 1024 * 1024),
+                Long.getLong("app.scheduler.costPerMs", 100_000),
+                mode.threadFactory("algo-worker-%d"));
+    }
+
+    public Lane lane(long cost) {
+        return cost >= largeCost ? Lane.LARGE : Lane.SMALL;
+    }
+
+    public void submit(Runnable task, long cost) {
+        long deadline = System.currentTimeMillis() + Math.max(cost, 0) / costPerMs;
+        lock.lock();
+        try {
+            Entry entry = new Entry(task, deadline, sequence++);
+            (lane(cost) == Lane.LARGE ? large : small).add(entry);
+            available.signal();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @return tasks waiting to run
+     */
+    public int size() {
+        lock.lock();
+        try {
+            return small.size() + large.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Blocks until fewer than limit tasks are waiting.
+     */
+    public void awaitBelow(int limit) throws InterruptedException {
+        lock.lock();
+        try {
+            while (small.size() + large.size() >= limit) {
+                taken.await();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int size(Lane lane) {
+        lock.lock();
+        try {
+            return lane == Lane.LARGE ? large.size() : small.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @return tasks running
+     */
+    public int activeCount() {
+        return active.get();
+    }
+
+    /**
+     * @return tasks run, failed ones included
+     */
+    public long completedCount() {
+        return completed.sum();
+    }
+
+    private void work() {
+        while (true) {
+            Entry entry;
+            boolean isLarge;
+            lock.lock();
+            try {
+                while (true) {
+                    boolean largeReady = !large.isEmpty() && runningLarge < largeWorkers;
+                    if (largeReady && (small.isEmpty() || byDeadline.compare(large.peek(), small.peek()) < 0)) {
+                        entry = large.poll();
+                        isLarge = true;
+                        runningLarge++;
+                        break;
+                    } else if (!small.isEmpty()) {
+                        entry = small.poll();
+                        isLarge = false;
+                        break;
+                    }
+                    available.awaitUninterruptibly();
+                }
+                taken.signalAll();
+            } finally {
+                lock.unlock();
+            }
+
+            active.incrementAndGet();
+            try {
+                entry.task.run();
+            } catch (RuntimeException e) {
+                logger.error("", e);
+            } finally {
+                active.decrementAndGet();
+                completed.increment();
+                Thread.interrupted(); // a cancelled task's interrupt is not for the next one
+                if (isLarge) {
+                    lock.lock();
+                    try {
+                        runningLarge--;
+                        available.signal();
+                    } finally {
+                        lock.unlock();
+                    }
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,415 @@
+package app;
+
+import events.Event;
+import events.EventData;
+import events.EventEmitter;
+import events.Publisher;
+import monitor.Metrics;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Shares the files of a directory between nodes (Main instances, on one host or many) watching it: a node solves
+ * a file only while it holds its claim.
+ * <p>
+ * The claim of "a.txt" is the hidden file ".a.txt.claim" next to it, created with CREATE_NEW, so of the nodes racing
+ * for a file exactly one wins; it holds the owner's node id (app.node.id, required in cluster mode). The owner renews
+ * it every quarter of the lease (app.cluster.leaseMs, default 30000) by touching its modification time, and deletes
+ * it when done. A claim not renewed for a lease is stale, left by a node that died: the next node to claim the file
+ * takes the ".a.txt.claim.takeover" lock (CREATE_NEW again, so one node at a time), checks the claim is still the
+ * one it saw stale (same file key, owner and modification time), renames it aside, checks the file it moved is that
+ * one too, and then races for a new claim. If the claim was renewed just before the rename, the node leaves it aside
+ * and gives the file up: the owner finds its claim gone on the next renewal and cancels its task
+ * ({@link #tryClaim(Path, Runnable)}). Every half lease the claims are swept: a file with a stale claim (or only a
+ * stale claim left aside) and no solution is emitted again as FILE_CREATED, since the other nodes dropped it when it
+ * was claimed, and the leftovers of take overs that didn't finish are deleted.
+ * <p>
+ * The lease is by the clocks of the nodes, so they must agree (NTP) to well within it. A lease longer than the task
+ * deadline means a claim can't expire under a task still running, even if a renewal is late.
+ */
+public class WorkClaims implements EventEmitter {
+    private static final Logger logger = LoggerFactory.getLogger(WorkClaims.class);
+    private static final String CLAIM_SUFFIX = ".claim";
+    /** next to a claim file while a node takes it over */
+    private static final String TAKEOVER_SUFFIX = ".takeover";
+
+    private final Path dir;
+    private final String nodeId;
+    private final long leaseMs;
+    private final Publisher publisher;
+    private final Set<Claim> held = ConcurrentHashMap.newKeySet();
+    private final LongAdder won = new LongAdder();
+    private final LongAdder lost = new LongAdder();
+    private final LongAdder takenOver = new LongAdder();
+    private final ScheduledExecutorService ticker = new ScheduledThreadPoolExecutor(1, r -> {
+        Thread thread = new Thread(r, "work-claims");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    /**
+     * A file claimed by this node, until closed.
+     */
+    public class Claim implements AutoCloseable {
+        private final Path file;
+        private final Path claimFile;
+        /** of the claim file created, to tell it from a claim created by another node after it was moved */
+        private final Object fileKey;
+        private final Runnable onLost;
+
+        private Claim(Path file, Path claimFile, Object fileKey, Runnable onLost) {
+            this.file = file;
+            this.claimFile = claimFile;
+            this.fileKey = fileKey;
+            this.onLost = onLost;
+        }
+
+        private void renew() {
+            try {
+                if (!isOurs()){
+                    lost();
+                    return;
+                }
+                Files.setLastModifiedTime(claimFile, FileTime.fromMillis(System.currentTimeMillis()));
+            } catch (NoSuchFileException e) {
+                lost();
+            } catch (IOException e) {
+                logger.error("can't renew the claim of <{}>", file, e);
+            }
+        }
+
+        private void lost() {
+            if (held.remove(this)){
+                logger.warn("claim of <{}> lost (moved by another node)", file);
+                onLost.run();
+            }
+        }
+
+        /**
+         * @return whether the claim file is still the one this claim created (without file keys, one of this node).
+         * The owner is checked too: a claim created by the node that took this one over may get its freed inode.
+         */
+        private boolean isOurs() throws IOException {
+            if (fileKey == null){
+                return nodeId.equals(owner(claimFile));
+            }
+            try {
+                return fileKey.equals(Files.readAttributes(claimFile, BasicFileAttributes.class).fileKey())
+                        && nodeId.equals(owner(claimFile));
+            } catch (NoSuchFileException e) {
+                return false;
+            }
+        }
+
+        /**
+         * Deletes the claim file, unless another node has taken it over. Also from a cancelled task: the interrupt
+         * would close the read, and the claim would stay for a lease.
+         */
+        @Override
+        public void close() {
+            held.remove(this);
+            boolean interrupted = Thread.interrupted();
+            try {
+                if (isOurs()){
+                    Files.deleteIfExists(claimFile);
+                }
+            } catch (NoSuchFileException e) {
+                // taken over and released
+            } catch (IOException e) {
+                logger.error("can't release the claim of <{}>", file, e);
+            } finally {
+                if (interrupted){
+                    Thread.currentThread().interrupt();
+                }
+            }
+        }
+    }
+
+    public WorkClaims(Path dir, String nodeId, long leaseMs, Publisher publisher) {
+        this.dir = dir;
+        this.nodeId = nodeId;
+        this.leaseMs = leaseMs;
+        this.publisher = publisher;
+    }
+
+    public static WorkClaims fromSystemProperties(Path dir, Publisher publisher) {
+        return new WorkClaims(dir, defaultNodeId(), Long.getLong("app.cluster.leaseMs", 30 * 1000), publisher);
+    }
+
+    /**
+     * app.node.id, default pid@host (unique per JVM on a host, but not across restarts: cluster mode requires
+     * app.node.id, see {@link #hasStableNodeId})
+     */
+    public static String defaultNodeId() {
+        String nodeId = System.getProperty("app.node.id");
+        if (nodeId != null && !nodeId.isBlank()){
+            return nodeId.strip();
+        }
+        String host;
+        try {
+            host = InetAddress.getLocalHost().getHostName();
+        } catch (UnknownHostException e) {
+            host = "localhost";
+        }
+        return ProcessHandle.current().pid() + "@" + host;
+    }
+
+    /**
+     * @return whether app.node.id is set. A node keeps its spill journal under its id, so a restarted node with a new
+     * id would leave the events of the old journal behind.
+     */
+    public static boolean hasStableNodeId() {
+        String nodeId = System.getProperty("app.node.id");
+        return nodeId != null && !nodeId.isBlank();
+    }
+
+    public String nodeId() {
+        return nodeId;
+    }
+
+    /**
+     * Starts renewing the claims held and sweeping the stale ones.
+     */
+    public void start() {
+        ticker.scheduleWithFixedDelay(this::renew, leaseMs / 4, leaseMs / 4, TimeUnit.MILLISECONDS);
+        ticker.scheduleWithFixedDelay(this::sweep, leaseMs / 2, leaseMs / 2, TimeUnit.MILLISECONDS);
+        logger.info("node {} sharing {} (lease {} ms)", nodeId, dir, leaseMs);
+    }
+
+    /**
+     * @return the claim, or null if another node holds a live claim on the file
+     */
+    public Claim tryClaim(Path file) throws IOException {
+        return tryClaim(file, () -> {});
+    }
+
+    /**
+     * @param onLost run (on the renewal thread) if the claim is found moved by another node while held: the work on
+     *               the file must stop, as another node may be solving it
+     * @return the claim, or null if another node holds a live claim on the file
+     */
+    public Claim tryClaim(Path file, Runnable onLost) throws IOException {
+        Path claimFile = claimFile(file);
+        byte[] owner = (nodeId + "\n").getBytes(StandardCharsets.UTF_8);
+        // a second try after taking over a stale claim
+        for (int i=0; i < 2; i++){
+            try {
+                Files.write(claimFile, owner, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+                Object fileKey = Files.readAttributes(claimFile, BasicFileAttributes.class).fileKey();
+                Claim claim = new Claim(file, claimFile, fileKey, onLost);
+                held.add(claim);
+                won.increment();
+                return claim;
+            } catch (FileAlreadyExistsException e) {
+                ClaimState seen = ClaimState.read(claimFile);
+                // null: released meanwhile, race for it again
+                if (seen != null && (!seen.isStale(leaseMs) || !takeOver(claimFile, seen))){
+                    lost.increment();
+                    return null;
+                }
+            }
+        }
+        lost.increment();
+        return null;
+    }
+
+    /**
+     * Registers the claim counters. The values are read only when scraped.
+     */
+    public void registerMetrics(Metrics metrics) {
+        metrics.counter("algo_solver_claims_won_total", "files claimed by this node", won::sum)
+                .counter("algo_solver_claims_lost_total", "files skipped, claimed by another node", lost::sum)
+                .counter("algo_solver_claims_taken_over_total", "stale claims of dead nodes taken over", takenOver::sum)
+                .gauge("algo_solver_claims_held", "files claimed by this node now", held::size);
+    }
+
+    @Override
+    public void emit(EventData eventData) {
+        publisher.notifyListeners(eventData);
+    }
+
+    private void renew() {
+        held.forEach(Claim::renew);
+    }
+
+    /**
+     * Emits FILE_CREATED for the unsolved files with a stale claim, and deletes the stale claims of solved or deleted
+     * files (and the claims renamed aside by a take over that didn't finish).
+     */
+    void sweep() {
+        List<Path> claimFiles;
+        try (Stream<Path> list = Files.list(dir)) {
+            claimFiles = list.filter(WorkClaims::isClaimFile).collect(Collectors.toList());
+        } catch (IOException e) {
+            logger.error("claims sweep of {} failed", dir, e);
+            return;
+        }
+        for (Path claimFile : claimFiles){
+            try {
+                if (!isStale(claimFile)){
+                    continue;
+                }
+                String name = claimFile.getFileName().toString();
+                if (name.endsWith(CLAIM_SUFFIX)){
+                    Path file = dir.resolve(name.substring(1, name.length() - CLAIM_SUFFIX.length()));
+                    if (Files.isRegularFile(file) && !AlgoInputHandler.hasSolution(file)){
+                        logger.warn("stale claim of <{}> (node {}), queueing it again", file, owner(claimFile));
+                        emit(new EventData(Event.FILE_CREATED, file.toString()));
+                    } else {
+                        Files.deleteIfExists(claimFile);
+                    }
+                    continue;
+                }
+                int end = name.lastIndexOf(CLAIM_SUFFIX + ".");
+                if (end < 1){
+                    continue; // not one of ours
+                }
+                // renamed aside: a live claim moved by a take over that lost its race leaves its file unclaimed
+                String owner = owner(claimFile);
+                Files.deleteIfExists(claimFile);
+                Path file = dir.resolve(name.substring(1, end));
+                if (Files.isRegularFile(file) && !Files.exists(claimFile(file)) && !AlgoInputHandler.hasSolution(file)){
+                    logger.warn("claim of <{}> (node {}) left aside, queueing it again", file, owner);
+                    emit(new EventData(Event.FILE_CREATED, file.toString()));
+                }
+            } catch (IOException e) {
+                logger.error("claims sweep: can't check {}", claimFile, e);
+            }
+        }
+    }
+
+    /**
+     * @param seen the claim file as it was found stale
+     * @return whether this node moved the stale claim out of the way (false if another node did)
+     */
+    private boolean takeOver(Path claimFile, ClaimState seen) throws IOException {
+        Path lock = claimFile.resolveSibling(claimFile.getFileName() + TAKEOVER_SUFFIX);
+        try {
+            Files.write(lock, (nodeId + "\n").getBytes(StandardCharsets.UTF_8), StandardOpenOption.CREATE_NEW,
+                    StandardOpenOption.WRITE);
+        } catch (FileAlreadyExistsException e) {
+            return false; // another node is taking it over
+        }
+        try {
+            ClaimState current = ClaimState.read(claimFile);
+            if (current == null){
+                return true; // released meanwhile, race for it again
+            }
+            if (!seen.equals(current)){
+                return false; // taken over (and claimed again) since it was seen stale
+            }
+            Path aside = claimFile.resolveSibling(claimFile.getFileName() + "." + fileSafe(nodeId));
+            try {
+                Files.move(claimFile, aside, StandardCopyOption.ATOMIC_MOVE);
+            } catch (NoSuchFileException e) {
+                return true;
+            }
+            if (!seen.equals(ClaimState.read(aside))){
+                // renewed (or released and claimed again) since the check. Never moved back: a move back could
+                // replace, or be replaced by, a claim created meanwhile. Its owner finds it gone and stops, and
+                // the sweep deletes it.
+                logger.warn("claim {} changed while taking it over, giving the file up", claimFile);
+                return false;
+            }
+            Files.deleteIfExists(aside);
+            takenOver.increment();
+            logger.warn("took over the stale claim {} of node {}", claimFile, seen.owner);
+            return true;
+        } finally {
+            Files.deleteIfExists(lock);
+        }
+    }
+
+    /**
+     * What identifies a claim file: renamed, it keeps its file key (inode); renewed, its modification time changes.
+     */
+    private static class ClaimState {
+        private final Object fileKey;
+        private final String owner;
+        private final FileTime modified;
+
+        private ClaimState(Object fileKey, String owner, FileTime modified) {
+            this.fileKey = fileKey;
+            this.owner = owner;
+            this.modified = modified;
+        }
+
+        /**
+         * @return the state, or null if there's no such file
+         */
+        static ClaimState read(Path claimFile) throws IOException {
+            try {
+                BasicFileAttributes attributes = Files.readAttributes(claimFile, BasicFileAttributes.class);
+                String owner = Files.readString(claimFile, StandardCharsets.UTF_8).strip();
+                return new ClaimState(attributes.fileKey(), owner, attributes.lastModifiedTime());
+            } catch (NoSuchFileException e) {
+                return null;
+            }
+        }
+
+        boolean isStale(long leaseMs) {
+            return System.currentTimeMillis() - modified.toMillis() > leaseMs;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof ClaimState)){
+                return false;
+            }
+            ClaimState other = (ClaimState) o;
+            return Objects.equals(fileKey, other.fileKey) && owner.equals(other.owner) && modified.equals(other.modified);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(fileKey, owner, modified);
+        }
+    }
+
+    private boolean isStale(Path claimFile) throws IOException {
+        try {
+            return System.currentTimeMillis() - Files.getLastModifiedTime(claimFile).toMillis() > leaseMs;
+        } catch (NoSuchFileException e) {
+            return true; // released meanwhile
+        }
+    }
+
+    private static String owner(Path claimFile) throws IOException {
+        try {
+            return Files.readString(claimFile, StandardCharsets.UTF_8).strip();
+        } catch (NoSuchFileException e) {
+            return "";
+        }
+    }
+
+    static Path claimFile(Path file) {
+        return file.resolveSibling("." + file.getFileName() + CLAIM_SUFFIX);
+    }
+
+    private static boolean isClaimFile(Path path) {
+        String name = path.getFileName().toString();
+        return name.startsWith(".") && name.contains(CLAIM_SUFFIX);
+    }
+
+    private static String fileSafe(String name) {
+        return name.replaceAll("[^A-Za-z0-9._-]", "_");
+    }
+}
@@ -0,0 +1,148 @@
+package app;
+
+import events.Event;
+import events.EventData;
+import events.EventEmitter;
+import events.EventSubscriber;
+import events.Publisher;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Between the DirectoryWatcher and the handler: turns FILE_CREATED / FILE_CHANGED into one FILE_READY per file,
+ * once the producer is done writing it.
+ * <p>
+ * CREATE starts tracking a file, and every CREATE / MODIFY after that only pushes its deadline back.
+ * A file is ready once its size hasn't changed for the quiet period (app.ready.quietMs, default 250),
+ * or right away when a marker file with the same name plus app.ready.suffix (default ".ready") appears,
+ * for producers that rename the marker into place after writing. MODIFY of an untracked file (e.g. the appended
+ * solution) is ignored.
+ */
+public class WriteCompletionDetector implements EventSubscriber, EventEmitter {
+    private static final Logger logger = LoggerFactory.getLogger(WriteCompletionDetector.class);
+
+    private final Publisher publisher;
+    private final long quietMs;
+    private final String readySuffix;
+    private final Map<String, Pending> pending = new ConcurrentHashMap<>();
+    private final ScheduledExecutorService ticker = new ScheduledThreadPoolExecutor(1, r -> {
+        Thread thread = new Thread(r, "write-completion");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private static class Pending {
+        long size = -1;
+        long lastChange;
+
+        Pending(long now) {
+            this.lastChange = now;
+        }
+    }
+
+    public WriteCompletionDetector(Publisher publisher) {
+        this(publisher, Long.getLong("app.ready.quietMs", 250), System.getProperty("app.ready.suffix", ".ready"));
+    }
+
+    public WriteCompletionDetector(Publisher publisher, long quietMs, String readySuffix) {
+        this.publisher = publisher;
+        this.quietMs = quietMs;
+        this.readySuffix = readySuffix;
+    }
+
+    /**
+     * Starts checking the tracked files, a few times per quiet period.
+     */
+    public void start() {
+        long period = Math.max(quietMs / 4, 10);
+        ticker.scheduleWithFixedDelay(this::check, period, period, TimeUnit.MILLISECONDS);
+        logger.info("started (quiet period {} ms, marker suffix {})", quietMs, readySuffix);
+    }
+
+    @Override
+    public void accept(EventData eventData) {
+        String filePath = eventData.getData();
+        long now = System.currentTimeMillis();
+
+        if (!readySuffix.isEmpty() && filePath.endsWith(readySuffix)) {
+            String target = filePath.substring(0, filePath.length() - readySuffix.length());
+            pending.remove(target);
+            logger.info("<{}> ready (marker)", target);
+            emit(new EventData(Event.FILE_READY, target));
+            return;
+        }
+
+        if (eventData.getEvent() == Event.FILE_CREATED) {
+            pending.compute(filePath, (path, p) -> {
+                if (p == null) {
+                    return new Pending(now);
+                }
+                p.lastChange = now;
+                return p;
+            });
+        } else {
+            pending.computeIfPresent(filePath, (path, p) -> {
+                p.lastChange = now;
+                return p;
+            });
+        }
+    }
+
+    /**
+     * @return files being written
+     */
+    public int size() {
+        return pending.size();
+    }
+
+    private void check() {
+        long now = System.currentTimeMillis();
+        for (String filePath : pending.keySet()) {
+            long size;
+            try {
+                size = Files.size(Path.of(filePath));
+            } catch (NoSuchFileException e) {
+                logger.warn("<{}> deleted before it was ready", filePath);
+                pending.remove(filePath);
+                continue;
+            } catch (IOException e) {
+                logger.error("can't check <{}>", filePath, e);
+                continue;
+            }
+
+            // decided under the map's lock for the file, so an event in between isn't missed
+            boolean[] ready = {false};
+            pending.computeIfPresent(filePath, (path, p) -> {
+                if (size != p.size) {
+                    p.size = size;
+                    p.lastChange = now;
+                    return p;
+                }
+                if (now - p.lastChange < quietMs) {
+                    return p;
+                }
+                ready[0] = true;
+                return null;
+            });
+            if (ready[0]) {
+                logger.info("<{}> ready ({} bytes)", filePath, size);
+                emit(new EventData(Event.FILE_READY, filePath));
+            }
+        }
+    }
+
+    @Override
+    public void emit(EventData eventData) {
+        publisher.notifyListeners(eventData);
+    }
+}
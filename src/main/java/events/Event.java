@@ -4,7 +4,9 @@ public enum Event {
     UNKNOWN(0),
     FILE_CREATED(1),
     FILE_CHANGED(2),
-    TASK_STATS(3);
+    TASK_STATS(3),
+    /** written completely, see app.WriteCompletionDetector */
+    FILE_READY(4);
 
     private final int value;
 
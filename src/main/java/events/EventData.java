@@ -7,10 +7,17 @@ public class EventData {
     public static final String STOP_MESSAGE = "BYE";
     private final Event event;
     private final String data;
+    /** typed data, for subscribers in the same process (null if there's none) */
+    private final Object payload;
 
     public EventData(Event event, String data) {
+        this(event, data, null);
+    }
+
+    public EventData(Event event, String data, Object payload) {
         this.event = event;
         this.data = data;
+        this.payload = payload;
     }
 
     @Override
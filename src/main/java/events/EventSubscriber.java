@@ -1,5 +1,17 @@
 package events;
 
+import java.util.List;
+
 public interface EventSubscriber {
     void accept(EventData eventData);
+
+    /**
+     * The events buffered for this subscriber since the last delivery, in order.
+     * Override to handle them together.
+     */
+    default void acceptAll(List<EventData> batch) {
+        for (EventData eventData : batch) {
+            accept(eventData);
+        }
+    }
 }
@@ -0,0 +1,13 @@
+package events;
+
+/**
+ * What the Publisher does with an event for a subscriber whose buffer is full.
+ */
+public enum OverflowPolicy {
+    /** the publishing thread waits for room */
+    BLOCK,
+    /** the new event is dropped */
+    DROP_NEWEST,
+    /** the oldest buffered event is dropped to make room */
+    DROP_OLDEST
+}
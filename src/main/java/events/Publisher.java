@@ -4,49 +4,206 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.util.ArrayList;
-import java.util.HashMap;
+import java.util.EnumMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
 
+/**
+ * Asynchronous event bus. Every subscriber has its own ring buffer and drain thread, so notifyListeners only
+ * enqueues and a slow subscriber doesn't hold up the publisher or the other subscribers.
+ * <p>
+ * A subscriber gets its events in publishing order (per publishing thread), in batches ({@link EventSubscriber#acceptAll}).
+ * When its buffer is full, its {@link OverflowPolicy} applies.
+ * Subscriber lists are copy-on-write: publishing never locks, and subscribing is safe from any thread.
+ */
 public class Publisher {
     private static final Logger logger = LoggerFactory.getLogger(Publisher.class);
-    private final HashMap<Event, List<EventSubscriber>> listenersByEvent;
+    private static final int DEFAULT_BUFFER_SIZE = Integer.getInteger("events.bufferSize", 1024);
+    private static final int MAX_BATCH = 256;
+    private static final long BLOCK_WAIT_NANOS = TimeUnit.MICROSECONDS.toNanos(100);
+
+    private final Map<Event, List<Subscription>> listenersByEvent = new EnumMap<>(Event.class);
+    private final Map<EventSubscriber, Subscription> subscriptions = new ConcurrentHashMap<>();
+    private final int bufferSize;
 
     public Publisher() {
-        this.listenersByEvent = new HashMap<>();
+        this(DEFAULT_BUFFER_SIZE);
+    }
+
+    /**
+     * @param bufferSize events buffered per subscriber (events.bufferSize, default 1024)
+     */
+    public Publisher(int bufferSize) {
+        this.bufferSize = bufferSize;
         for (Event event: Event.values()){
-            this.listenersByEvent.put(event, new ArrayList<>());
+            this.listenersByEvent.put(event, new CopyOnWriteArrayList<>());
         }
     }
 
     public void subscribe(Event event, EventSubscriber listener) {
-        List<EventSubscriber> listeners = listenersByEvent.get(event);
+        subscribe(event, listener, OverflowPolicy.BLOCK);
+    }
+
+    /**
+     * @param policy for a full buffer, used by the subscriber's first subscription
+     */
+    public synchronized void subscribe(Event event, EventSubscriber listener, OverflowPolicy policy) {
+        List<Subscription> listeners = listenersByEvent.get(event);
         if (listeners == null){
             logger.error("unknown event {}", event);
             return;
         }
-        listeners.add(listener);
+        Subscription subscription = subscriptions.computeIfAbsent(listener, l -> new Subscription(l, bufferSize, policy));
+        if (listeners.contains(subscription)){
+            return;
+        }
+        listeners.add(subscription);
+        subscription.events++;
     }
 
-    public void unsubscribe(Event event, EventSubscriber listener) {
-        List<EventSubscriber> listeners = listenersByEvent.get(event);
+    /**
+     * Events already buffered are still delivered.
+     */
+    public synchronized void unsubscribe(Event event, EventSubscriber listener) {
+        List<Subscription> listeners = listenersByEvent.get(event);
         if (listeners == null){
             logger.error("unknown event {}", event);
             return;
         }
-        listeners.remove(listener);
+        Subscription subscription = subscriptions.get(listener);
+        if (subscription == null || !listeners.remove(subscription)){
+            return;
+        }
+        if (--subscription.events == 0){
+            subscriptions.remove(listener);
+            subscription.close();
+        }
     }
 
     public void notifyListeners(EventData eventData) {
         Event event = eventData.getEvent();
-        List<EventSubscriber> listeners = listenersByEvent.get(event);
+        List<Subscription> listeners = listenersByEvent.get(event);
 
         if (listeners == null){
             logger.error("unknown event {}", event);
             return;
         }
 
-        for (EventSubscriber listener : listeners) {
-            listener.accept(eventData);
+        for (Subscription subscription : listeners) {
+            subscription.publish(eventData);
+        }
+    }
+
+    /**
+     * @return events dropped by the overflow policies, in total
+     */
+    public long droppedCount() {
+        return subscriptions.values().stream().mapToLong(s -> s.dropped.get()).sum();
+    }
+
+    /**
+     * Stops the drain threads, after delivering what's buffered.
+     */
+    public synchronized void close() {
+        for (List<Subscription> listeners : listenersByEvent.values()){
+            listeners.clear();
+        }
+        subscriptions.values().forEach(Subscription::close);
+        subscriptions.clear();
+    }
+
+    private static class Subscription {
+        private final EventSubscriber listener;
+        private final RingBuffer<EventData> buffer;
+        private final OverflowPolicy policy;
+        private final Thread drainer;
+        private final AtomicLong dropped = new AtomicLong();
+        private volatile boolean waiting = false;
+        private volatile boolean closed = false;
+        /** events subscribed to, guarded by the Publisher */
+        private int events = 0;
+
+        Subscription(EventSubscriber listener, int bufferSize, OverflowPolicy policy) {
+            this.listener = listener;
+            this.buffer = new RingBuffer<>(bufferSize);
+            this.policy = policy;
+            this.drainer = new Thread(this::drain, "publisher-" + listener.getClass().getSimpleName());
+            this.drainer.setDaemon(true);
+            this.drainer.start();
+        }
+
+        void publish(EventData eventData) {
+            if (!buffer.offer(eventData)){
+                switch (policy) {
+                    case BLOCK -> {
+                        while (!buffer.offer(eventData)){
+                            if (closed){
+                                dropped.incrementAndGet();
+                                return;
+                            }
+                            LockSupport.unpark(drainer);
+                            LockSupport.parkNanos(BLOCK_WAIT_NANOS);
+                        }
+                    }
+                    case DROP_NEWEST -> {
+                        dropped.incrementAndGet();
+                        return;
+                    }
+                    case DROP_OLDEST -> {
+                        do {
+                            if (buffer.poll() != null){
+                                dropped.incrementAndGet();
+                            }
+                        } while (!buffer.offer(eventData));
+                    }
+                }
+            }
+            // the drainer sets waiting before its last look at the buffer, so it can't miss this
+            if (waiting){
+                LockSupport.unpark(drainer);
+            }
+        }
+
+        void close() {
+            closed = true;
+            LockSupport.unpark(drainer);
+        }
+
+        private void drain() {
+            List<EventData> batch = new ArrayList<>(MAX_BATCH);
+            while (true) {
+                EventData eventData;
+                while (batch.size() < MAX_BATCH && (eventData = buffer.poll()) != null){
+                    batch.add(eventData);
+                }
+                if (!batch.isEmpty()){
+                    deliver(batch);
+                    batch.clear();
+                    continue;
+                }
+                if (closed){
+                    return;
+                }
+
+                waiting = true;
+                if (buffer.isEmpty() && !closed){
+                    LockSupport.park(this);
+                }
+                waiting = false;
+            }
+        }
+
+        private void deliver(List<EventData> batch) {
+            try {
+                listener.acceptAll(batch);
+            } catch (RuntimeException e) {
+                logger.error("subscriber {} failed", listener, e);
+            }
         }
     }
 }
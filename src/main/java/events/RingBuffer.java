@@ -0,0 +1,90 @@
+package events;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Bounded lock-free queue (Vyukov's array queue): every slot has a sequence number that tells producers when it's
+ * free and consumers when it's filled, so offer and poll each take one CAS and never block.
+ * Safe for any number of producers and consumers.
+ */
+class RingBuffer<T> {
+    private final Object[] items;
+    private final AtomicLongArray sequences;
+    private final int mask;
+    private final AtomicLong head = new AtomicLong();
+    private final AtomicLong tail = new AtomicLong();
+
+    /**
+     * @param capacity rounded up to a power of 2
+     */
+    RingBuffer(int capacity) {
+        int size = Integer.highestOneBit(Math.max(capacity - 1, 1)) << 1;
+        this.items = new Object[size];
+        this.sequences = new AtomicLongArray(size);
+        this.mask = size - 1;
+        for (int i=0; i < size; i++){
+            sequences.set(i, i);
+        }
+    }
+
+    /**
+     * @return false if full
+     */
+    boolean offer(T item){
+        long pos = tail.get();
+        while (true){
+            int slot = (int) pos & mask;
+            long diff = sequences.get(slot) - pos;
+            if (diff == 0){
+                if (tail.compareAndSet(pos, pos + 1)){
+                    items[slot] = item;
+                    sequences.set(slot, pos + 1); // publishes the item
+                    return true;
+                }
+                pos = tail.get();
+            } else if (diff < 0){
+                return false;
+            } else {
+                pos = tail.get();
+            }
+        }
+    }
+
+    /**
+     * @return null if empty
+     */
+    @SuppressWarnings("unchecked")
+    T poll(){
+        long pos = head.get();
+        while (true){
+            int slot = (int) pos & mask;
+            long diff = sequences.get(slot) - (pos + 1);
+            if (diff == 0){
+                if (head.compareAndSet(pos, pos + 1)){
+                    T item = (T) items[slot];
+                    items[slot] = null;
+                    sequences.set(slot, pos + items.length); // frees the slot for the next lap
+                    return item;
+                }
+                pos = head.get();
+            } else if (diff < 0){
+                return null;
+            } else {
+                pos = head.get();
+            }
+        }
+    }
+
+    boolean isEmpty(){
+        return size() == 0;
+    }
+
+    int size(){
+        return (int) Math.max(0, tail.get() - head.get());
+    }
+
+    int capacity(){
+        return items.length;
+    }
+}
@@ -0,0 +1,18 @@
+package monitor;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.ToString;
+
+/**
+ * Cumulative solution cache counters.
+ */
+@Getter
+@AllArgsConstructor
+@ToString
+public class CacheStats {
+    private long hits;
+    private long misses;
+    private long evictions;
+    private long size;
+}
@@ -0,0 +1,103 @@
+package monitor;
+
+import java.util.Arrays;
+
+/**
+ * Histogram of latencies in ns, in the HdrHistogram layout: buckets of powers of 2, each split into 128 linear
+ * sub-buckets, so every value is counted with a precision of 1/128 (< 1%) in a fixed, small array.
+ * Histograms with the same layout merge by adding the counts, so windows and threads can be recorded apart.
+ * <p>
+ * Values are tracked up to 2^40 ns (about 18 minutes); larger values are counted in the last bucket, but max is exact.
+ * Not thread safe.
+ */
+public class LatencyHistogram {
+    private static final int SUB_BUCKET_BITS = 7;
+    private static final int MAX_VALUE_BITS = 40;
+    private static final long MAX_TRACKED = (1L << MAX_VALUE_BITS) - 1;
+    private static final int LENGTH = index(MAX_TRACKED) + 1;
+
+    private final int[] counts = new int[LENGTH];
+    private long count = 0;
+    private long max = 0;
+    private long sum = 0;
+
+    public void record(long nanos) {
+        long value = Math.max(nanos, 0);
+        counts[index(Math.min(value, MAX_TRACKED))]++;
+        count++;
+        sum += value;
+        max = Math.max(max, value);
+    }
+
+    /**
+     * Adds the counts of the other histogram to this one.
+     */
+    public void add(LatencyHistogram other) {
+        if (other.count == 0) {
+            return;
+        }
+        for (int i=0; i < LENGTH; i++){
+            counts[i] += other.counts[i];
+        }
+        count += other.count;
+        sum += other.sum;
+        max = Math.max(max, other.max);
+    }
+
+    public void reset() {
+        if (count == 0) {
+            return;
+        }
+        Arrays.fill(counts, 0);
+        count = 0;
+        sum = 0;
+        max = 0;
+    }
+
+    /**
+     * @param percentile 0 to 100
+     * @return the highest value counted the same as the value at the percentile (at most max), 0 if empty
+     */
+    public long valueAtPercentile(double percentile) {
+        if (count == 0) {
+            return 0;
+        }
+        long rank = Math.max(1, (long) Math.ceil(Math.min(percentile, 100) / 100 * count));
+        long seen = 0;
+        for (int i=0; i < LENGTH; i++){
+            seen += counts[i];
+            if (seen >= rank) {
+                // the last bucket also holds everything over the tracked range
+                return i == LENGTH - 1 ? max : Math.min(highestEquivalentValue(i), max);
+            }
+        }
+        return max;
+    }
+
+    public long count() {
+        return count;
+    }
+
+    public long max() {
+        return max;
+    }
+
+    public double mean() {
+        return count == 0 ? 0 : (double) sum / count;
+    }
+
+    /**
+     * Bucket b >= 1 holds the values of bit length b + 8, by their top 8 bits (128..255); bucket 0 the values below 256.
+     */
+    private static int index(long value) {
+        int bucket = Math.max(0, 63 - Long.numberOfLeadingZeros(value) - SUB_BUCKET_BITS);
+        int subBucket = (int) (value >>> bucket);
+        return (bucket << SUB_BUCKET_BITS) + subBucket;
+    }
+
+    private static long highestEquivalentValue(int index) {
+        int bucket = Math.max(0, (index >> SUB_BUCKET_BITS) - 1);
+        long subBucket = index - ((long) bucket << SUB_BUCKET_BITS);
+        return ((subBucket + 1) << bucket) - 1;
+    }
+}
@@ -0,0 +1,102 @@
+package monitor;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.DoubleSupplier;
+import java.util.function.Supplier;
+
+/**
+ * Registry of metrics, rendered in the Prometheus text format (version 0.0.4).
+ * <p>
+ * A metric is a function reading a value the components already keep (a counter, a queue size), so recording costs
+ * nothing extra: values are only read when scraped. Families are rendered in registration order.
+ */
+public class Metrics {
+    public enum Type {
+        COUNTER, GAUGE
+    }
+
+    /**
+     * @param labels label name to value, in order (empty for none)
+     */
+    public record Sample(Map<String, String> labels, double value) {
+        public Sample(double value) {
+            this(Map.of(), value);
+        }
+    }
+
+    private record Family(String name, String help, Type type, Supplier<List<Sample>> samples) {
+    }
+
+    private final Map<String, Family> families = new LinkedHashMap<>();
+
+    /**
+     * @param name counters end in _total, by convention
+     */
+    public Metrics counter(String name, String help, DoubleSupplier value) {
+        return register(name, help, Type.COUNTER, () -> List.of(new Sample(value.getAsDouble())));
+    }
+
+    public Metrics gauge(String name, String help, DoubleSupplier value) {
+        return register(name, help, Type.GAUGE, () -> List.of(new Sample(value.getAsDouble())));
+    }
+
+    /**
+     * A metric with labels, its samples read together (e.g. one per lane).
+     */
+    public synchronized Metrics register(String name, String help, Type type, Supplier<List<Sample>> samples) {
+        if (families.putIfAbsent(name, new Family(name, help, type, samples)) != null){
+            throw new IllegalArgumentException("metric registered twice: " + name);
+        }
+        return this;
+    }
+
+    public synchronized String scrape() {
+        StringBuilder sb = new StringBuilder(4096);
+        for (Family family : families.values()){
+            List<Sample> samples;
+            try {
+                samples = family.samples().get();
+            } catch (RuntimeException e) {
+                samples = new ArrayList<>(); // a failing source doesn't hide the others
+            }
+            sb.append("# HELP ").append(family.name()).append(' ').append(escapeHelp(family.help())).append('\n');
+            sb.append("# TYPE ").append(family.name()).append(' ').append(family.type().name().toLowerCase()).append('\n');
+            for (Sample sample : samples){
+                sb.append(family.name());
+                if (!sample.labels().isEmpty()){
+                    sb.append('{');
+                    String separator = "";
+                    for (Map.Entry<String, String> label : sample.labels().entrySet()){
+                        sb.append(separator).append(label.getKey()).append("=\"").append(escapeLabel(label.getValue())).append('"');
+                        separator = ",";
+                    }
+                    sb.append('}');
+                }
+                sb.append(' ').append(format(sample.value())).append('\n');
+            }
+        }
+        return sb.toString();
+    }
+
+    private static String format(double value) {
+        if (Double.isNaN(value)){
+            return "NaN";
+        } else if (Double.isInfinite(value)){
+            return value > 0 ? "+Inf" : "-Inf";
+        } else if (value == Math.rint(value) && Math.abs(value) < 1e15){
+            return Long.toString((long) value);
+        }
+        return Double.toString(value);
+    }
+
+    private static String escapeHelp(String help) {
+        return help.replace("\\", "\\\\").replace("\n", "\\n");
+    }
+
+    private static String escapeLabel(String value) {
+        return escapeHelp(value).replace("\"", "\\\"");
+    }
+}
@@ -0,0 +1,83 @@
+package monitor;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.Executors;
+
+/**
+ * Serves the {@link Metrics} at GET /metrics for Prometheus, on the JDK's built-in HTTP server, with one daemon thread.
+ * Only on the loopback interface unless given another address (e.g. 0.0.0.0 for a remote Prometheus).
+ */
+public class MetricsServer {
+    private static final Logger logger = LoggerFactory.getLogger(MetricsServer.class);
+    private static final String CONTENT_TYPE = "text/plain; version=0.0.4; charset=utf-8";
+
+    private final Metrics metrics;
+    private final InetSocketAddress address;
+    private HttpServer server;
+
+    public MetricsServer(Metrics metrics, int port) {
+        this(metrics, InetAddress.getLoopbackAddress().getHostAddress(), port);
+    }
+
+    /**
+     * @param host the address to listen on
+     */
+    public MetricsServer(Metrics metrics, String host, int port) {
+        this.metrics = metrics;
+        this.address = new InetSocketAddress(host, port);
+    }
+
+    public void start() throws IOException {
+        server = HttpServer.create(address, 0);
+        server.createContext("/metrics", this::handle);
+        server.setExecutor(Executors.newSingleThreadExecutor(r -> {
+            Thread thread = new Thread(r, "metrics-http");
+            thread.setDaemon(true);
+            return thread;
+        }));
+        server.start();
+        logger.info("serving metrics on http://{}:{}/metrics", address.getHostString(), server.getAddress().getPort());
+    }
+
+    /**
+     * @return the port listened on (useful with port 0)
+     */
+    public int port() {
+        return server.getAddress().getPort();
+    }
+
+    public void stop() {
+        if (server != null){
+            server.stop(0);
+        }
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            String method = exchange.getRequestMethod();
+            if (!method.equals("GET") && !method.equals("HEAD")){
+                exchange.sendResponseHeaders(405, -1);
+                return;
+            }
+            byte[] body = metrics.scrape().getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().set("Content-Type", CONTENT_TYPE);
+            if (method.equals("HEAD")){
+                exchange.sendResponseHeaders(200, -1);
+                return;
+            }
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        }
+    }
+}
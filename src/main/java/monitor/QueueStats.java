@@ -0,0 +1,22 @@
+package monitor;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.ToString;
+
+/**
+ * Queue depths at the time of a task, and cumulative spill counters.
+ */
+@Getter
+@AllArgsConstructor
+@ToString
+public class QueueStats {
+    /** events waiting in memory */
+    private long events;
+    /** events waiting in the spill journal */
+    private long journal;
+    /** tasks waiting for a worker */
+    private long tasks;
+    private long spilled;
+    private long replayed;
+}
@@ -0,0 +1,58 @@
+package monitor;
+
+/**
+ * Latencies of the last window: a ring of {@link LatencyHistogram} slots, each covering window / slots ms.
+ * Recording goes to the current slot, a snapshot merges them all, and slots older than the window are cleared
+ * as time moves on, so the window slides by one slot at a time.
+ * Not thread safe.
+ */
+public class SlidingWindowHistogram {
+    private final LatencyHistogram[] slots;
+    private final long slotMs;
+    /** number of the current slot since the epoch */
+    private long currentSlot = Long.MIN_VALUE;
+
+    /**
+     * @param windowMs length of the window
+     * @param slots the window moves by windowMs / slots
+     */
+    public SlidingWindowHistogram(long windowMs, int slots) {
+        if (slots < 1 || windowMs < slots){
+            throw new IllegalArgumentException("need windowMs >= slots >= 1: " + windowMs + ", " + slots);
+        }
+        this.slots = new LatencyHistogram[slots];
+        for (int i=0; i < slots; i++){
+            this.slots[i] = new LatencyHistogram();
+        }
+        this.slotMs = windowMs / slots;
+    }
+
+    public void record(long nanos, long nowMs) {
+        advance(nowMs);
+        slots[Math.floorMod(currentSlot, slots.length)].record(nanos);
+    }
+
+    /**
+     * @return the latencies recorded in the window up to now, merged
+     */
+    public LatencyHistogram snapshot(long nowMs) {
+        advance(nowMs);
+        LatencyHistogram merged = new LatencyHistogram();
+        for (LatencyHistogram slot : slots){
+            merged.add(slot);
+        }
+        return merged;
+    }
+
+    private void advance(long nowMs) {
+        long slot = Math.floorDiv(nowMs, slotMs);
+        if (slot <= currentSlot){
+            return;
+        }
+        long passed = currentSlot == Long.MIN_VALUE ? slots.length : Math.min(slot - currentSlot, slots.length);
+        for (long s = slot - passed + 1; s <= slot; s++){
+            slots[Math.floorMod(s, slots.length)].reset();
+        }
+        currentSlot = slot;
+    }
+}
@@ -0,0 +1,53 @@
+package monitor;
+
+import lombok.Getter;
+import lombok.ToString;
+
+/**
+ * Where the time of a task went, in ns (System.nanoTime).
+ * For a bundle, parse and solve are summed over its problems, which run in parallel, so they can add up to more than total.
+ */
+@Getter
+@ToString
+public class StageTimes {
+    public enum Stage {
+        /** waiting for a worker */
+        QUEUE,
+        /** reading the file and the problem, cache lookup included */
+        PARSE,
+        SOLVE,
+        /** appending the solution */
+        WRITE,
+        /** from taking the event to done */
+        TOTAL
+    }
+
+    private long queue_ns;
+    private long parse_ns;
+    private long solve_ns;
+    private long write_ns;
+    private long total_ns;
+
+    public long get(Stage stage) {
+        return switch (stage) {
+            case QUEUE -> queue_ns;
+            case PARSE -> parse_ns;
+            case SOLVE -> solve_ns;
+            case WRITE -> write_ns;
+            case TOTAL -> total_ns;
+        };
+    }
+
+    /**
+     * Adds to the stage (called by the workers of a bundle at once).
+     */
+    public synchronized void add(Stage stage, long nanos) {
+        switch (stage) {
+            case QUEUE -> queue_ns += nanos;
+            case PARSE -> parse_ns += nanos;
+            case SOLVE -> solve_ns += nanos;
+            case WRITE -> write_ns += nanos;
+            case TOTAL -> total_ns += nanos;
+        }
+    }
+}
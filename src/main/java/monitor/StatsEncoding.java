@@ -0,0 +1,77 @@
+package monitor;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * How a snapshot of stats rows goes into a datagram (monitor.encoding = json / binary, default json).
+ * The console reads both.
+ */
+public enum StatsEncoding {
+    /**
+     * An array of objects, one per row: {"algo": name, field: value, ...}.
+     */
+    JSON {
+        @Override
+        public byte[] encode(List<StatsRow> rows) {
+            JsonArray array = new JsonArray(rows.size());
+            for (StatsRow row : rows){
+                JsonObject object = new JsonObject();
+                object.addProperty("algo", row.name());
+                row.fields().forEach(object::addProperty);
+                array.add(object);
+            }
+            return array.toString().getBytes(StandardCharsets.UTF_8);
+        }
+    },
+    /**
+     * Big endian: 'A' 'S', version (1 byte), row count (2 bytes), then per row: name, field count (1 byte),
+     * and per field: name, value (float64). A name is its UTF-8 length (1 byte) and bytes.
+     */
+    BINARY {
+        private static final int VERSION = 1;
+
+        @Override
+        public byte[] encode(List<StatsRow> rows) {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream(64 * rows.size());
+            try (DataOutputStream out = new DataOutputStream(bytes)) {
+                out.writeByte('A');
+                out.writeByte('S');
+                out.writeByte(VERSION);
+                out.writeShort(rows.size());
+                for (StatsRow row : rows){
+                    writeName(out, row.name());
+                    out.writeByte(row.fields().size());
+                    for (Map.Entry<String, Number> field : row.fields().entrySet()){
+                        writeName(out, field.getKey());
+                        out.writeDouble(field.getValue().doubleValue());
+                    }
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e); // in memory
+            }
+            return bytes.toByteArray();
+        }
+
+        private void writeName(DataOutputStream out, String name) throws IOException {
+            byte[] utf8 = name.getBytes(StandardCharsets.UTF_8);
+            int length = Math.min(utf8.length, 255);
+            out.writeByte(length);
+            out.write(utf8, 0, length);
+        }
+    };
+
+    public abstract byte[] encode(List<StatsRow> rows);
+
+    public static StatsEncoding fromSystemProperties() {
+        return "binary".equalsIgnoreCase(System.getProperty("monitor.encoding", "json").strip()) ? BINARY : JSON;
+    }
+}
@@ -9,44 +9,179 @@ import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
 import java.net.*;
-import java.nio.charset.StandardCharsets;
-import java.util.HashMap;
-import java.util.concurrent.BlockingQueue;
-import java.util.concurrent.LinkedBlockingQueue;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
 
+/**
+ * Aggregates the TASK_STATS events and sends them to the console over UDP.
+ * <p>
+ * Tasks are recorded as they finish, from any thread ({@link #record}): into striped counters per algorithm and into
+ * latency histograms per algorithm and stage. The TaskStats come as the event payload (JSON data is still read).
+ * Every monitor.reportMs (default 1000) one snapshot of all the rows is sent as a single datagram,
+ * encoded by monitor.encoding ({@link StatsEncoding}): a row per algorithm (times in ms), the cache and queue rows,
+ * a row per algorithm and stage with the latency percentiles over the last monitor.windowMs (default 60000),
+ * and a row per node ("node " + id) with its tasks and throughput, when the tasks say which node ran them.
+ * <p>
+ * Several nodes on one host can't all bind the monitor port: the others send from an ephemeral port.
+ */
 public class StatsMonitor implements EventSubscriber {
     private static final Logger logger = LoggerFactory.getLogger(StatsMonitor.class);
     private static final Gson gson = new Gson();
+    private static final long REPORT_MS = Long.getLong("monitor.reportMs", 1000);
+    private static final long WINDOW_MS = Long.getLong("monitor.windowMs", 60 * 1000);
+    private static final int WINDOW_SLOTS = Integer.getInteger("monitor.windowSlots", 6);
+    private static final int MAX_DATAGRAM = 65507;
 
     private final SocketAddress clientsocketAddress;
     private final SocketAddress socketAddress;
-    private final HashMap<String, UsageStats> statsByAlgo = new HashMap<>();
-    private final BlockingQueue<TaskStats> queue = new LinkedBlockingQueue<>();
+    private final StatsEncoding encoding;
+    private final Map<String, UsageStats> statsByAlgo = new ConcurrentHashMap<>();
+    private final AtomicReference<CacheStats> cacheStats = new AtomicReference<>();
+    private final AtomicReference<QueueStats> queueStats = new AtomicReference<>();
+    private final Map<String, NodeStats> statsByNode = new ConcurrentHashMap<>();
     private DatagramSocket socket = null;
 
+    /**
+     * Counters of an algorithm, updated by any number of threads without contention.
+     */
     static class UsageStats {
-        String algo;
-        double avgTime;
-        long maxTime;
-        long minTime;
-        int timesUsed;
-
-        public UsageStats(String algo, double avgTime) {
-            this.algo = algo;
-            this.avgTime = avgTime;
-            this.timesUsed = 1;
-            this.maxTime = (long) avgTime;
-            this.minTime = this.maxTime;
+        final LongAdder timesUsed = new LongAdder();
+        final LongAdder totalTime = new LongAdder();
+        final LongAdder totalWait = new LongAdder();
+        final LongAccumulator maxTime = new LongAccumulator(Math::max, 0);
+        final LongAccumulator minTime = new LongAccumulator(Math::min, Long.MAX_VALUE);
+        final LongAccumulator maxWait = new LongAccumulator(Math::max, 0);
+        /** by stage ordinal, each guarded by itself */
+        final SlidingWindowHistogram[] latencies = new SlidingWindowHistogram[StageTimes.Stage.values().length];
+
+        UsageStats() {
+            for (int i=0; i < latencies.length; i++){
+                latencies[i] = new SlidingWindowHistogram(WINDOW_MS, WINDOW_SLOTS);
+            }
+        }
+
+        void record(TaskStats taskStats, long now) {
+            timesUsed.increment();
+            totalTime.add(taskStats.getTime_ms());
+            totalWait.add(taskStats.getWait_ms());
+            maxTime.accumulate(taskStats.getTime_ms());
+            minTime.accumulate(taskStats.getTime_ms());
+            maxWait.accumulate(taskStats.getWait_ms());
+
+            StageTimes stages = taskStats.getStages();
+            if (stages == null){
+                return;
+            }
+            for (StageTimes.Stage stage : StageTimes.Stage.values()){
+                SlidingWindowHistogram histogram = latencies[stage.ordinal()];
+                synchronized (histogram){
+                    histogram.record(stages.get(stage), now);
+                }
+            }
+        }
+
+        /**
+         * Read while tasks are recorded, so the columns can be a task apart.
+         */
+        StatsRow row(String algo) {
+            long count = timesUsed.sum();
+            Map<String, Number> fields = new LinkedHashMap<>();
+            fields.put("avgTime", round(count == 0 ? 0 : (double) totalTime.sum() / count));
+            fields.put("maxTime", maxTime.get());
+            fields.put("minTime", count == 0 ? 0 : minTime.get());
+            fields.put("avgWait", round(count == 0 ? 0 : (double) totalWait.sum() / count));
+            fields.put("maxWait", maxWait.get());
+            fields.put("timesUsed", count);
+            return new StatsRow(algo, fields);
+        }
+
+        /**
+         * A row per stage, e.g. "Knapsack solve"; all zeros once the window has no tasks.
+         */
+        void latencyRows(String algo, long now, List<StatsRow> rows) {
+            for (StageTimes.Stage stage : StageTimes.Stage.values()){
+                SlidingWindowHistogram window = latencies[stage.ordinal()];
+                LatencyHistogram histogram;
+                synchronized (window){
+                    histogram = window.snapshot(now);
+                }
+                Map<String, Number> fields = new LinkedHashMap<>();
+                fields.put("count", histogram.count());
+                fields.put("p50_ms", toMs(histogram.valueAtPercentile(50)));
+                fields.put("p99_ms", toMs(histogram.valueAtPercentile(99)));
+                fields.put("p999_ms", toMs(histogram.valueAtPercentile(99.9)));
+                fields.put("max_ms", toMs(histogram.max()));
+                rows.add(new StatsRow(algo + " " + stage.name().toLowerCase(), fields));
+            }
+        }
+
+        private static double round(double value) {
+            return Math.round(value * 100.0) / 100.0;
+        }
+
+        private static double toMs(long nanos) {
+            return Math.round(nanos / 1000.0) / 1000.0;
+        }
+    }
+
+    /**
+     * Tasks run by a node, and their rate over the window.
+     */
+    static class NodeStats {
+        final LongAdder tasks = new LongAdder();
+        final long since;
+        /** guarded by itself */
+        final SlidingWindowHistogram totals = new SlidingWindowHistogram(WINDOW_MS, WINDOW_SLOTS);
+
+        NodeStats(long now) {
+            this.since = now;
+        }
+
+        void record(TaskStats taskStats, long now) {
+            tasks.increment();
+            StageTimes stages = taskStats.getStages();
+            synchronized (totals){
+                totals.record(stages == null ? TimeUnit.MILLISECONDS.toNanos(taskStats.getTime_ms()) : stages.get(StageTimes.Stage.TOTAL), now);
+            }
+        }
+
+        StatsRow row(String node, long now) {
+            LatencyHistogram histogram;
+            synchronized (totals){
+                histogram = totals.snapshot(now);
+            }
+            // over the time seen, until the window is full
+            double seconds = Math.max(1, Math.min(WINDOW_MS, now - since)) / 1000.0;
+            Map<String, Number> fields = new LinkedHashMap<>();
+            fields.put("tasks", tasks.sum());
+            fields.put("tasksPerSec", UsageStats.round(histogram.count() / seconds));
+            fields.put("p99_ms", UsageStats.toMs(histogram.valueAtPercentile(99)));
+            return new StatsRow("node " + node, fields);
         }
     }
 
     public StatsMonitor(int port, int clientPort) {
+        this(port, clientPort, StatsEncoding.fromSystemProperties());
+    }
+
+    public StatsMonitor(int port, int clientPort, StatsEncoding encoding) {
         socketAddress = new InetSocketAddress("localhost", port);
         clientsocketAddress = new InetSocketAddress("localhost", clientPort);
+        this.encoding = encoding;
     }
 
+    /**
+     * Sends a snapshot every REPORT_MS, once there is something to show.
+     */
     public void start() throws InterruptedException {
-        logger.info("started");
+        logger.info("started ({} encoding)", encoding.name().toLowerCase());
 
         boolean success = startSocket();
         if (!success){
@@ -54,44 +189,99 @@ public class StatsMonitor implements EventSubscriber {
         }
 
         while (true){
-            TaskStats taskStats = queue.take();
-            String algo = taskStats.getAlgorithm();
-            long time_ms = taskStats.getTime_ms();
-
-            UsageStats usageStats = statsByAlgo.get(algo);
-            if (usageStats == null){
-                usageStats = new UsageStats(algo, time_ms);
-                statsByAlgo.put(algo, usageStats);
-            } else {
-                usageStats.timesUsed++;
-                double avg = usageStats.avgTime;
-                avg += (time_ms - avg) / usageStats.timesUsed;
-                usageStats.avgTime = Math.round(avg * 100.0) / 100.0;
+            Thread.sleep(REPORT_MS);
+            List<StatsRow> rows = snapshot();
+            if (!rows.isEmpty()){
+                send(rows);
             }
+        }
+    }
 
-            if (time_ms > usageStats.maxTime){
-                usageStats.maxTime = time_ms;
-            } else if (time_ms < usageStats.minTime){
-                usageStats.minTime = time_ms;
-            }
+    /**
+     * Thread safe, and cheap: a few striped counter updates and one histogram record per stage.
+     */
+    public void record(TaskStats taskStats) {
+        long now = System.currentTimeMillis();
+        statsByAlgo.computeIfAbsent(taskStats.getAlgorithm(), a -> new UsageStats())
+                .record(taskStats, now);
+        if (taskStats.getNode() != null){
+            statsByNode.computeIfAbsent(taskStats.getNode(), n -> new NodeStats(now)).record(taskStats, now);
+        }
 
-            sendData(gson.toJson(usageStats, UsageStats.class));
+        // cumulative, tasks may finish out of order
+        CacheStats cache = taskStats.getCache();
+        if (cache != null){
+            cacheStats.accumulateAndGet(cache, (current, next) ->
+                    current == null || next.getHits() + next.getMisses() >= current.getHits() + current.getMisses() ? next : current);
+        }
+        if (taskStats.getQueue() != null){
+            queueStats.set(taskStats.getQueue());
         }
     }
 
+    /**
+     * @return the rows of the console table, as of now
+     */
+    public List<StatsRow> snapshot() {
+        long now = System.currentTimeMillis();
+        List<StatsRow> rows = new ArrayList<>();
+        statsByAlgo.forEach((algo, usageStats) -> rows.add(usageStats.row(algo)));
+
+        CacheStats cache = cacheStats.get();
+        if (cache != null){
+            Map<String, Number> fields = new LinkedHashMap<>();
+            fields.put("hits", cache.getHits());
+            fields.put("misses", cache.getMisses());
+            fields.put("evictions", cache.getEvictions());
+            fields.put("size", cache.getSize());
+            rows.add(new StatsRow("cache", fields));
+        }
+        QueueStats queue = queueStats.get();
+        if (queue != null){
+            Map<String, Number> fields = new LinkedHashMap<>();
+            fields.put("events", queue.getEvents());
+            fields.put("journal", queue.getJournal());
+            fields.put("tasks", queue.getTasks());
+            fields.put("spilled", queue.getSpilled());
+            fields.put("replayed", queue.getReplayed());
+            rows.add(new StatsRow("queue", fields));
+        }
+        statsByNode.forEach((node, nodeStats) -> rows.add(nodeStats.row(node, now)));
+
+        statsByAlgo.forEach((algo, usageStats) -> usageStats.latencyRows(algo, now, rows));
+        return rows;
+    }
+
     public boolean startSocket(){
         try {
             socket = new DatagramSocket(socketAddress);
             return true;
+        } catch (BindException e) {
+            logger.warn("monitor socket {} in use (another node?), sending from an ephemeral port", socketAddress);
+        } catch (Exception e) {
+            logger.error("can't bind to monitor socket ({})", e.getMessage());
+            return false;
+        }
+        try {
+            socket = new DatagramSocket(new InetSocketAddress("localhost", 0));
+            return true;
         } catch (Exception e) {
             logger.error("can't bind to monitor socket ({})", e.getMessage());
             return false;
         }
     }
 
-    private void sendData(String data){
+    /**
+     * One datagram, or halves of the rows if it doesn't fit in one.
+     */
+    private void send(List<StatsRow> rows){
+        byte[] bytes = encoding.encode(rows);
+        if (bytes.length > MAX_DATAGRAM && rows.size() > 1){
+            send(rows.subList(0, rows.size() / 2));
+            send(rows.subList(rows.size() / 2, rows.size()));
+            return;
+        }
         try {
-            byte[] bytes = data.getBytes(StandardCharsets.UTF_8);
             DatagramPacket packet = new DatagramPacket(bytes, bytes.length, clientsocketAddress);
             socket.send(packet);
         } catch (IOException e) {
@@ -101,12 +291,19 @@ public class StatsMonitor implements EventSubscriber {
 
     @Override
     public void accept(EventData eventData) {
+        if (eventData.getPayload() instanceof TaskStats taskStats){
+            record(taskStats);
+            return;
+        }
         try{
             TaskStats taskStats = gson.fromJson(eventData.getData(), TaskStats.class);
-            queue.add(taskStats);
+            if (taskStats != null && taskStats.getAlgorithm() != null){
+                record(taskStats);
+                return;
+            }
         } catch (JsonSyntaxException e){
-            logger.error("parse error {}", eventData);
-            return;
+            // logged below
         }
+        logger.error("parse error {}", eventData);
     }
 }
@@ -0,0 +1,9 @@
+package monitor;
+
+import java.util.Map;
+
+/**
+ * A row of the console table: its name (the "algo" column) and its numeric columns, in order.
+ */
+public record StatsRow(String name, Map<String, Number> fields) {
+}
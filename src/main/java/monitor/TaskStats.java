@@ -10,4 +10,17 @@ import lombok.ToString;
 public class TaskStats {
     private String algorithm;
     private long time_ms;
+    /** time waiting for a worker */
+    private long wait_ms;
+    /** scheduler lane: small / large */
+    private String lane;
+    private CacheStats cache;
+    private QueueStats queue;
+    private StageTimes stages;
+    /** the node that ran the task, when several share a directory */
+    private String node;
+
+    public TaskStats(String algorithm, long time_ms) {
+        this(algorithm, time_ms, 0, null, null, null, null, null);
+    }
 }
@@ -16,11 +16,41 @@ setInterval(() => {
   console.table(stats);
 }, 350);
 
+// a snapshot: JSON (an array of rows, or a single row) or binary ("AS", see monitor.StatsEncoding)
+function decode(msg) {
+  if (msg.length >= 5 && msg[0] === 0x41 && msg[1] === 0x53) {
+    let offset = 3;
+    const readName = () => {
+      const length = msg.readUInt8(offset);
+      const name = msg.toString("utf8", offset + 1, offset + 1 + length);
+      offset += 1 + length;
+      return name;
+    };
+    const rows = [];
+    const count = msg.readUInt16BE(offset);
+    offset += 2;
+    for (let i = 0; i < count; i++) {
+      const row = { algo: readName() };
+      const fields = msg.readUInt8(offset++);
+      for (let f = 0; f < fields; f++) {
+        const name = readName();
+        row[name] = msg.readDoubleBE(offset);
+        offset += 8;
+      }
+      rows.push(row);
+    }
+    return rows;
+  }
+  const parsed = JSON.parse(msg);
+  return Array.isArray(parsed) ? parsed : [parsed];
+}
+
 server.on("message", (msg, info) => {
   try {
-    let item_stats = JSON.parse(msg);
-    let algo = item_stats.algo;
-    delete item_stats["algo"];
-    stats[algo] = item_stats;
+    for (let item_stats of decode(msg)) {
+      let algo = item_stats.algo;
+      delete item_stats["algo"];
+      stats[algo] = item_stats;
+    }
   } catch (e) {}
 });
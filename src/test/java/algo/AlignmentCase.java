@@ -0,0 +1,98 @@
+package algo;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * An alignment problem over symbol ids, checked against {@link FullMatrixAlignment}: the same cost and the same path,
+ * ties included. Small alphabets and short sequences make ties (and empty sequences) common.
+ */
+record AlignmentCase(int[] str1, int[] str2, int symbols, int gap, int mismatch) {
+
+    /**
+     * Mostly short sequences over 1-3 symbols, sometimes up to 150 (several 64-bit blocks, tiles and splits).
+     * The mismatch penalty is often equal to the gap penalty, or above twice it (a mismatch never worth it).
+     */
+    static AlignmentCase random(Random random) {
+        int symbols = 1 + random.nextInt(3);
+        int maxLength = random.nextInt(10) == 0 ? 150 : 12;
+        int gap = 1 + random.nextInt(4);
+        int mismatch;
+        switch (random.nextInt(3)){
+            case 0:
+                mismatch = gap;
+                break;
+            case 1:
+                mismatch = random.nextInt(2 * gap + 3);
+                break;
+            default:
+                mismatch = random.nextInt(10);
+        }
+        return new AlignmentCase(randomString(random, random.nextInt(maxLength + 1), symbols),
+                randomString(random, random.nextInt(maxLength + 1), symbols), symbols, gap, mismatch);
+    }
+
+    /**
+     * str2 a few edits away from str1, every other case.
+     */
+    static AlignmentCase randomNearIdentical(Random random) {
+        AlignmentCase c = random(random);
+        return random.nextBoolean() ? c : new AlignmentCase(c.str1, mutate(random, c.str1, c.symbols), c.symbols, c.gap, c.mismatch);
+    }
+
+    /**
+     * Both, either and neither sequence empty, with gap == mismatch (every engine can take them).
+     */
+    static List<AlignmentCase> emptySequences() {
+        int[] empty = new int[0];
+        int[] str = {0, 1, 1};
+        return List.of(new AlignmentCase(empty, empty, 2, 2, 2), new AlignmentCase(empty, str, 2, 2, 2),
+                new AlignmentCase(str, empty, 2, 2, 2));
+    }
+
+    AlignmentCase withMismatch(int mismatch) {
+        return new AlignmentCase(str1, str2, symbols, gap, mismatch);
+    }
+
+    void assertMatchesFullMatrix(Alignment alignment) {
+        Alignment expected = FullMatrixAlignment.align(str1, str2, gap, mismatch);
+        assertEquals(expected.cost, alignment.cost, this::toString);
+        assertArrayEquals(expected.moves, alignment.moves, this::toString);
+    }
+
+    private static int[] randomString(Random random, int length, int symbols) {
+        int[] str = new int[length];
+        for (int i=0; i < length; i++){
+            str[i] = random.nextInt(symbols);
+        }
+        return str;
+    }
+
+    /**
+     * @return str with a few tokens replaced, inserted or deleted
+     */
+    private static int[] mutate(Random random, int[] str, int symbols) {
+        IntStream.Builder out = IntStream.builder();
+        for (int token : str){
+            int edit = random.nextInt(20);
+            if (edit == 0){
+                continue;
+            }
+            out.add(edit == 1 ? random.nextInt(symbols) : token);
+            if (edit == 2){
+                out.add(random.nextInt(symbols));
+            }
+        }
+        return out.build().toArray();
+    }
+
+    @Override
+    public String toString() {
+        return "str1=" + Arrays.toString(str1) + " str2=" + Arrays.toString(str2) + " gap=" + gap + " mismatch=" + mismatch;
+    }
+}
@@ -0,0 +1,43 @@
+package algo;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class BandedAlignmentTest {
+
+    @Test
+    void matchesFullMatrix() {
+        // near-identical pairs stay in a narrow band, the others grow it to the whole matrix
+        RandomCases.check(AlignmentCase::randomNearIdentical, c -> {
+            Alignment alignment = BandedAlignment.align(c.str1(), c.str2(), c.gap(), c.mismatch(), Long.MAX_VALUE);
+            assertNotNull(alignment, c::toString);
+            c.assertMatchesFullMatrix(alignment);
+        });
+    }
+
+    @Test
+    void emptySequences() {
+        for (AlignmentCase c : AlignmentCase.emptySequences()){
+            c.assertMatchesFullMatrix(BandedAlignment.align(c.str1(), c.str2(), c.gap(), c.mismatch(), Long.MAX_VALUE));
+        }
+    }
+
+    @Test
+    void dissimilarStopsAfterTheFirstBand() {
+        Random random = new Random(42);
+        int[] str1 = random.ints(2000, 0, 4).toArray();
+        int[] str2 = random.ints(2000, 0, 4).toArray();
+        MemoryBudget budget = new MemoryBudget(Long.MAX_VALUE);
+
+        assertNull(BandedAlignment.align(str1, str2, 2, 3, 2001L * 2001 / 8, budget));
+        // only the first band, 16 on each side of the diagonal, was leased and filled
+        long firstBand = 2001L * 33 * Integer.BYTES;
+        assertEquals((firstBand + 1023) / 1024 * 1024, budget.leasedBytes());
+        assertEquals(budget.totalBytes(), budget.availableBytes());
+    }
+}
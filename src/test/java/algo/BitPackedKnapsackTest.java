@@ -0,0 +1,18 @@
+package algo;
+
+import org.junit.jupiter.api.Test;
+
+class BitPackedKnapsackTest {
+
+    @Test
+    void matchesDense() {
+        RandomCases.check(KnapsackCase::random, c -> c.assertMatchesDense(BitPackedKnapsack.solve(c.values(), c.weights(), c.C())));
+    }
+
+    @Test
+    void edgeCases() {
+        for (KnapsackCase c : KnapsackCase.edgeCases()){
+            c.assertMatchesDense(BitPackedKnapsack.solve(c.values(), c.weights(), c.C()));
+        }
+    }
+}
@@ -0,0 +1,20 @@
+package algo;
+
+import org.junit.jupiter.api.Test;
+
+class BitParallelAlignmentTest {
+
+    @Test
+    void matchesFullMatrix() {
+        // the engine takes gap == mismatch only; lengths up to 150 span several 64-bit blocks
+        RandomCases.check(random -> { AlignmentCase c = AlignmentCase.random(random); return c.withMismatch(c.gap()); },
+                c -> c.assertMatchesFullMatrix(BitParallelAlignment.align(c.str1(), c.str2(), c.symbols(), c.gap())));
+    }
+
+    @Test
+    void emptySequences() {
+        for (AlignmentCase c : AlignmentCase.emptySequences()){
+            c.assertMatchesFullMatrix(BitParallelAlignment.align(c.str1(), c.str2(), c.symbols(), c.gap()));
+        }
+    }
+}
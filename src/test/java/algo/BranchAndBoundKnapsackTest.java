@@ -0,0 +1,18 @@
+package algo;
+
+import org.junit.jupiter.api.Test;
+
+class BranchAndBoundKnapsackTest {
+
+    @Test
+    void matchesDense() {
+        RandomCases.check(KnapsackCase::random, c -> c.assertMatchesDense(BranchAndBoundKnapsack.solve(c.values(), c.weights(), c.C())));
+    }
+
+    @Test
+    void edgeCases() {
+        for (KnapsackCase c : KnapsackCase.edgeCases()){
+            c.assertMatchesDense(BranchAndBoundKnapsack.solve(c.values(), c.weights(), c.C()));
+        }
+    }
+}
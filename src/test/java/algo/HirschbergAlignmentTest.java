@@ -0,0 +1,19 @@
+package algo;
+
+import org.junit.jupiter.api.Test;
+
+class HirschbergAlignmentTest {
+
+    @Test
+    void matchesFullMatrix() {
+        RandomCases.check(AlignmentCase::random,
+                c -> c.assertMatchesFullMatrix(HirschbergAlignment.align(c.str1(), c.str2(), c.gap(), c.mismatch())));
+    }
+
+    @Test
+    void emptySequences() {
+        for (AlignmentCase c : AlignmentCase.emptySequences()){
+            c.assertMatchesFullMatrix(HirschbergAlignment.align(c.str1(), c.str2(), c.gap(), c.mismatch()));
+        }
+    }
+}
@@ -0,0 +1,87 @@
+package algo;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+
+/**
+ * A knapsack problem, checked against the dense (n+1) x (C+1) DP: the same optimum, and the same items among equal
+ * optima. Small values and weights make ties common; zero weights, zero and negative values and items heavier than C
+ * are mixed in.
+ */
+record KnapsackCase(int[] values, int[] weights, int C) {
+
+    static KnapsackCase random(Random random) {
+        return random(random, 12, 60);
+    }
+
+    static KnapsackCase random(Random random, int maxItems, int maxCapacity) {
+        int n = random.nextInt(maxItems + 1);
+        int C = random.nextInt(maxCapacity + 1);
+        int maxWeight = Math.max(1, C / 3) + 2;
+        int[] values = new int[n];
+        int[] weights = new int[n];
+        for (int item=0; item < n; item++){
+            int kind = random.nextInt(10);
+            values[item] = kind == 0 ? 0 : kind == 1 ? -random.nextInt(5) : 1 + random.nextInt(8);
+            weights[item] = random.nextInt(8) == 0 ? 0 : random.nextInt(maxWeight + 1);
+        }
+        return new KnapsackCase(values, weights, C);
+    }
+
+    /**
+     * No items, C = 0, and zero-weight items only.
+     */
+    static List<KnapsackCase> edgeCases() {
+        return List.of(
+                new KnapsackCase(new int[0], new int[0], 0),
+                new KnapsackCase(new int[0], new int[0], 5),
+                new KnapsackCase(new int[]{3, 4, 0}, new int[]{0, 1, 0}, 0),
+                new KnapsackCase(new int[]{3, 4, 2}, new int[]{2, 0, 0}, 1));
+    }
+
+    void assertMatchesDense(int[] items) {
+        assertArrayEquals(dense(), items, this::toString);
+    }
+
+    /**
+     * @return the items of the full value table, read back from the last item
+     */
+    int[] dense() {
+        int n = values.length;
+        int[][] A = new int[n+1][C+1];
+        for (int i=1; i <= n; i++){
+            int item = i-1;
+            for (int c=0; c <= C; c++){
+                int withoutItem = A[i - 1][c];
+                if (c - weights[item] < 0){
+                    A[i][c] = withoutItem;
+                } else {
+                    A[i][c] = Math.max(A[i - 1][c - weights[item]] + values[item], withoutItem);
+                }
+            }
+        }
+
+        int c = C;
+        IntStream.Builder items = IntStream.builder();
+        for (int i = n; i >= 1; i--){
+            int item = i - 1;
+            if (c - weights[item] < 0){
+                continue;
+            }
+            if (A[i-1][c] < A[i-1][c - weights[item]] + values[item]){
+                items.add(item);
+                c -= weights[item];
+            }
+        }
+        return items.build().sorted().toArray();
+    }
+
+    @Override
+    public String toString() {
+        return "values=" + Arrays.toString(values) + " weights=" + Arrays.toString(weights) + " C=" + C;
+    }
+}
@@ -0,0 +1,29 @@
+package algo;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.ForkJoinPool;
+
+class ParallelHirschbergAlignmentTest {
+    private static final ForkJoinPool pool = new ForkJoinPool(4);
+
+    @AfterAll
+    static void shutdown() {
+        pool.shutdown();
+    }
+
+    @Test
+    void matchesFullMatrix() {
+        // tiles of 1 to 3 cells a side, so splits of more than 16 to 144 cells are filled in tiles
+        RandomCases.check(AlignmentCase::random, c -> c.assertMatchesFullMatrix(ParallelHirschbergAlignment.align(c.str1(),
+                c.str2(), c.gap(), c.mismatch(), 1 + (c.str1().length + c.str2().length) % 3, pool)));
+    }
+
+    @Test
+    void emptySequences() {
+        for (AlignmentCase c : AlignmentCase.emptySequences()){
+            c.assertMatchesFullMatrix(ParallelHirschbergAlignment.align(c.str1(), c.str2(), c.gap(), c.mismatch(), 1, pool));
+        }
+    }
+}
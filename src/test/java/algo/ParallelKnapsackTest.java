@@ -0,0 +1,33 @@
+package algo;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.ForkJoinPool;
+
+class ParallelKnapsackTest {
+    private static final ForkJoinPool pool = new ForkJoinPool(4);
+
+    @AfterAll
+    static void shutdown() {
+        pool.shutdown();
+    }
+
+    @Test
+    void matchesDense() {
+        RandomCases.check(KnapsackCase::random, c -> c.assertMatchesDense(ParallelKnapsack.solve(c.values(), c.weights(), c.C(), pool)));
+    }
+
+    @Test
+    void capacitiesOverSeveralChunks() {
+        RandomCases.check(20, random -> KnapsackCase.random(random, 8, 40_000),
+                c -> c.assertMatchesDense(ParallelKnapsack.solve(c.values(), c.weights(), c.C(), pool)));
+    }
+
+    @Test
+    void edgeCases() {
+        for (KnapsackCase c : KnapsackCase.edgeCases()){
+            c.assertMatchesDense(ParallelKnapsack.solve(c.values(), c.weights(), c.C(), pool));
+        }
+    }
+}
@@ -0,0 +1,29 @@
+package algo;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class ParetoKnapsackTest {
+
+    @Test
+    void matchesDense() {
+        RandomCases.check(KnapsackCase::random, c -> c.assertMatchesDense(ParetoKnapsack.solve(c.values(), c.weights(), c.C(), Long.MAX_VALUE)));
+    }
+
+    @Test
+    void edgeCases() {
+        for (KnapsackCase c : KnapsackCase.edgeCases()){
+            c.assertMatchesDense(ParetoKnapsack.solve(c.values(), c.weights(), c.C(), Long.MAX_VALUE));
+        }
+    }
+
+    @Test
+    void givesUpPastMaxStates() {
+        // every subset of weights 1, 2, 4, 8 is on the frontier: 1 + 2 + 4 + 8 + 16 states
+        int[] values = {1, 2, 4, 8};
+        int[] weights = {1, 2, 4, 8};
+        assertNull(ParetoKnapsack.solve(values, weights, 15, 30));
+        new KnapsackCase(values, weights, 15).assertMatchesDense(ParetoKnapsack.solve(values, weights, 15, 31));
+    }
+}
@@ -0,0 +1,28 @@
+package algo;
+
+import java.util.Random;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * Randomized checks of an engine against a simple reference: many small random cases, from a fixed seed so a
+ * failure reproduces. The case's assertions report the case.
+ */
+final class RandomCases {
+    private static final long SEED = 42;
+    private static final int ROUNDS = 2000;
+
+    private RandomCases() {
+    }
+
+    static <T> void check(Function<Random, T> generator, Consumer<T> check) {
+        check(ROUNDS, generator, check);
+    }
+
+    static <T> void check(int rounds, Function<Random, T> generator, Consumer<T> check) {
+        Random random = new Random(SEED);
+        for (int round=0; round < rounds; round++){
+            check.accept(generator.apply(random));
+        }
+    }
+}
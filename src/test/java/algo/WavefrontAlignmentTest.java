@@ -0,0 +1,29 @@
+package algo;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.ForkJoinPool;
+
+class WavefrontAlignmentTest {
+    private static final ForkJoinPool pool = new ForkJoinPool(4);
+
+    @AfterAll
+    static void shutdown() {
+        pool.shutdown();
+    }
+
+    @Test
+    void matchesFullMatrix() {
+        // tiles of 1 to 8 cells a side: many tiles, partial ones at the edges
+        RandomCases.check(AlignmentCase::random, c -> c.assertMatchesFullMatrix(WavefrontAlignment.align(c.str1(), c.str2(),
+                c.gap(), c.mismatch(), 1 + (c.str1().length + c.str2().length) % 8, pool)));
+    }
+
+    @Test
+    void emptySequences() {
+        for (AlignmentCase c : AlignmentCase.emptySequences()){
+            c.assertMatchesFullMatrix(WavefrontAlignment.align(c.str1(), c.str2(), c.gap(), c.mismatch(), 2, pool));
+        }
+    }
+}
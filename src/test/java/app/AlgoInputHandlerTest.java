@@ -0,0 +1,166 @@
+package app;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import events.Event;
+import events.EventData;
+import events.Publisher;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.BooleanSupplier;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class AlgoInputHandlerTest {
+    private static final ThreadFactory daemons = new ThreadFactoryBuilder().setNameFormat("test-worker-%d").setDaemon(true).build();
+    private static final String KNAPSACK = "Knapsack\n20 7 26\n16 5 3\n20\n";
+
+    @TempDir
+    Path dir;
+
+    private final Publisher publisher = new Publisher();
+    private AlgoInputHandler handler;
+    private Thread handlerThread;
+
+    @BeforeEach
+    void journalInTempDir() {
+        System.setProperty("app.queue.journal", dir.resolve("journal").resolve("spill.journal").toString());
+    }
+
+    @AfterEach
+    void stop() throws InterruptedException {
+        if (handlerThread != null) {
+            handler.accept(new EventData(Event.FILE_READY, dir.resolve(EventData.STOP_MESSAGE).toString()));
+            handlerThread.join(5000);
+        }
+        publisher.close();
+        System.clearProperty("app.queue.journal");
+    }
+
+    @Test
+    void fileReplayedFromTheJournalAndFoundByTheScanIsSolvedOnce() throws IOException, InterruptedException {
+        List<Path> files = new ArrayList<>();
+        StringBuilder journal = new StringBuilder();
+        for (int i=0; i < 20; i++){
+            Path file = Files.writeString(dir.resolve("p" + i + ".txt"), KNAPSACK);
+            files.add(file);
+            journal.append(Event.FILE_READY).append('\t').append(file).append('\n');
+        }
+        // left by the previous run
+        Files.createDirectories(dir.resolve("journal"));
+        Files.writeString(dir.resolve("journal").resolve("spill.journal"), journal, StandardCharsets.UTF_8);
+
+        // the worker waits until every event has left the queue, so the first task of a file is still pending then
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicReference<TaskScheduler> scheduler = new AtomicReference<>();
+        start(() -> {
+            TaskScheduler s = new TaskScheduler(1, 1, Long.MAX_VALUE, 100_000, daemons);
+            s.submit(() -> await(release), 0);
+            scheduler.set(s);
+            return s;
+        });
+        // the startup scan reports the same files
+        for (Path file : files){
+            handler.accept(new EventData(Event.FILE_READY, file.toString()));
+        }
+
+        assertTrue(waitFor(() -> handler.queueStats().getEvents() == 0 && handler.queueStats().getJournal() == 0
+                && scheduler.get() != null && scheduler.get().size() >= files.size()));
+        Thread.sleep(200);
+        assertEquals(files.size(), scheduler.get().size());
+        release.countDown();
+
+        assertTrue(waitFor(() -> scheduler.get().completedCount() == files.size() + 1 && scheduler.get().activeCount() == 0));
+        for (Path file : files){
+            assertEquals(1, solutions(file), file::toString);
+        }
+    }
+
+    @Test
+    void bundleWritesItsSolutionsInOrderPastAFailedProblem() throws IOException {
+        // more problems than the bundle keeps in flight; problem i's solution is the item of its highest value
+        StringBuilder bundle = new StringBuilder("Bundle\n");
+        List<String> expected = new ArrayList<>();
+        for (int i=0; i < 200; i++){
+            if (i > 0){
+                bundle.append("---\n");
+            }
+            if (i % 7 == 3){
+                bundle.append("Knapsack\n1 2 x\n1 1 1\n1\n");
+                expected.add("");
+            } else if (i % 11 == 5){
+                bundle.append("Sudoku\n1 2 3\n");
+                expected.add("");
+            } else {
+                int items = 2 + i % 5;
+                int best = i % items;
+                List<String> values = new ArrayList<>();
+                for (int item=0; item < items; item++){
+                    values.add(item == best ? "9" : Integer.toString(1 + item % 3));
+                }
+                bundle.append("Knapsack\n").append(String.join(" ", values)).append('\n')
+                        .append("1 ".repeat(items).strip()).append("\n1\n");
+                expected.add(Integer.toString(best));
+            }
+        }
+        Path file = Files.writeString(dir.resolve("bundle.txt"), bundle);
+        handler = new AlgoInputHandler(publisher, new SolutionCache(0, Duration.ofMinutes(1), null));
+
+        assertEquals("Bundle", handler.handleEvent(file.toString(), Event.FILE_READY));
+        String content = Files.readString(file, StandardCharsets.UTF_8);
+        int solution = content.indexOf("\nSolution:\n");
+        assertEquals(bundle.toString(), content.substring(0, solution));
+        assertEquals(expected, List.of(content.substring(solution + "\nSolution:\n".length()).split("\n---\n", -1)));
+    }
+
+    private void start(Supplier<TaskScheduler> schedulerFactory) {
+        handler = new AlgoInputHandler(publisher, new SolutionCache(0, Duration.ofMinutes(1), null), schedulerFactory);
+        handlerThread = new Thread(() -> {
+            try {
+                handler.start();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }, "handler");
+        handlerThread.setDaemon(true);
+        handlerThread.start();
+    }
+
+    private static int solutions(Path file) throws IOException {
+        return (int) Files.readAllLines(file, StandardCharsets.UTF_8).stream().filter(line -> line.equals("Solution:")).count();
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static boolean waitFor(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 10_000;
+        while (!condition.getAsBoolean()){
+            if (System.currentTimeMillis() > deadline){
+                return false;
+            }
+            TimeUnit.MILLISECONDS.sleep(10);
+        }
+        return true;
+    }
+}
@@ -0,0 +1,65 @@
+package app;
+
+import events.Publisher;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class BatchRunnerTest {
+    @TempDir
+    Path dir;
+
+    private final Publisher publisher = new Publisher();
+
+    @BeforeEach
+    void journalInTempDir() {
+        System.setProperty("app.queue.journal", dir.resolve("journal").resolve("spill.journal").toString());
+    }
+
+    @AfterEach
+    void close() {
+        publisher.close();
+        System.clearProperty("app.queue.journal");
+    }
+
+    @Test
+    void countsSolvedAndFailedFiles() throws IOException, InterruptedException {
+        Path input = Files.createDirectories(dir.resolve("in"));
+        Path good = Files.writeString(input.resolve("good.txt"), "Knapsack\n1 5 6\n2 4 5\n7\n");
+        Path malformed = Files.writeString(input.resolve("malformed.txt"), "Knapsack\n1 5 6\n2 4\n7\n");
+        Path unknown = Files.writeString(input.resolve("unknown.txt"), "Sudoku\n1 2 3\n");
+        // a valid problem with an empty solution
+        Path nothingFits = Files.writeString(input.resolve("nothing-fits.txt"), "Knapsack\n3 4\n5 6\n2\n");
+
+        BatchRunner.Summary summary = new BatchRunner(handler(), 2).run(input);
+        assertEquals(4, summary.files());
+        assertEquals(2, summary.solved());
+        assertEquals(0, summary.skipped());
+        assertEquals(2, summary.failures().size());
+
+        assertTrue(AlgoInputHandler.hasSolution(good));
+        assertTrue(AlgoInputHandler.hasSolution(nothingFits));
+        // left as they were, to be fixed and run again
+        assertFalse(AlgoInputHandler.hasSolution(malformed));
+        assertFalse(AlgoInputHandler.hasSolution(unknown));
+
+        BatchRunner.Summary again = new BatchRunner(handler(), 2).run(input);
+        assertEquals(0, again.solved());
+        assertEquals(2, again.skipped());
+        assertEquals(2, again.failures().size());
+    }
+
+    private AlgoInputHandler handler() {
+        return new AlgoInputHandler(publisher, new SolutionCache(0, Duration.ofMinutes(1), null));
+    }
+}
@@ -0,0 +1,79 @@
+package app;
+
+import com.google.common.io.BaseEncoding;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SolutionCacheTest {
+    private static final long MAX_BYTES = 1024 * 1024;
+    private static final Duration MAX_AGE = Duration.ofMinutes(60);
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void loadsTheIndexBack() {
+        Path index = dir.resolve("cache.idx");
+        SolutionCache cache = new SolutionCache(MAX_BYTES, MAX_AGE, index);
+        cache.put("a", "Solution:\n1 2 3\n");
+        cache.put("b", "");
+
+        SolutionCache restarted = new SolutionCache(MAX_BYTES, MAX_AGE, index);
+        assertEquals("Solution:\n1 2 3\n", restarted.get("a"));
+        assertEquals("", restarted.get("b"));
+        assertNull(restarted.get("c"));
+    }
+
+    @Test
+    void skipsMalformedAndExpiredLines() throws IOException {
+        Path index = dir.resolve("cache.idx");
+        long now = System.currentTimeMillis();
+        long expired = now - MAX_AGE.toMillis() - 1000;
+        Files.write(index, List.of(
+                "good\t" + now + "\t" + encode("kept"),
+                "old\t" + expired + "\t" + encode("expired"),
+                "no tabs",
+                "badTime\tyesterday\t" + encode("x"),
+                "badBase64\t" + now + "\t!!!",
+                "cut\t" + now), StandardCharsets.UTF_8);
+
+        SolutionCache cache = new SolutionCache(MAX_BYTES, MAX_AGE, index);
+        assertEquals("kept", cache.get("good"));
+        assertNull(cache.get("old"));
+        assertNull(cache.get("badTime"));
+        assertNull(cache.get("badBase64"));
+        assertNull(cache.get("cut"));
+        // compacted on load
+        List<String> lines = Files.readAllLines(index, StandardCharsets.UTF_8);
+        assertEquals(1, lines.size());
+        assertTrue(lines.get(0).startsWith("good\t"));
+    }
+
+    @Test
+    void compactsWhenTheIndexOutgrowsTheCache() throws IOException {
+        Path index = dir.resolve("cache.idx");
+        SolutionCache cache = new SolutionCache(MAX_BYTES, MAX_AGE, index);
+        for (int i=0; i < 100; i++){
+            cache.put("same", "solution " + i);
+        }
+
+        // one entry: compacted every other line
+        assertTrue(Files.readAllLines(index, StandardCharsets.UTF_8).size() <= 2);
+        assertEquals("solution 99", new SolutionCache(MAX_BYTES, MAX_AGE, index).get("same"));
+    }
+
+    private static String encode(String solution) {
+        return BaseEncoding.base64().encode(solution.getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,146 @@
+package app;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SolveSlotsTest {
+
+    @Test
+    void cheapestFirstThenFirstCome() throws InterruptedException {
+        // a cost of 1 per ms: the costs are far apart compared to the time the requests take
+        SolveSlots slots = new SolveSlots(1, Long.MAX_VALUE, 1);
+        SolveSlots.Slot held = slots.acquire(0);
+
+        List<String> order = new CopyOnWriteArrayList<>();
+        List<Thread> threads = new ArrayList<>();
+        long[] costs = {50_000, 10_000, 30_000, 10_000, 0};
+        for (int i=0; i < costs.length; i++){
+            String name = i + ":" + costs[i];
+            long cost = costs[i];
+            Thread thread = new Thread(() -> {
+                try (SolveSlots.Slot slot = slots.acquire(cost)) {
+                    order.add(name);
+                }
+            });
+            thread.start();
+            threads.add(thread);
+            int waiting = i + 1;
+            assertTrue(waitFor(() -> slots.waitingCount() == waiting));
+        }
+        held.close();
+
+        for (Thread thread : threads){
+            thread.join(5000);
+        }
+        assertEquals(List.of("4:0", "1:10000", "3:10000", "2:30000", "0:50000"), order);
+    }
+
+    @Test
+    void largeTasksLeaveASlotToTheSmall() throws InterruptedException {
+        SolveSlots slots = new SolveSlots(3, 100, 1);
+        SolveSlots.Slot large1 = slots.acquire(100);
+        SolveSlots.Slot large2 = slots.acquire(100);
+
+        AtomicBoolean thirdLarge = new AtomicBoolean();
+        Thread waiting = new Thread(() -> {
+            try (SolveSlots.Slot slot = slots.acquire(100)) {
+                thirdLarge.set(true);
+            }
+        });
+        waiting.start();
+        assertTrue(waitFor(() -> slots.waitingCount() == 1));
+
+        // the free slot is for small tasks only
+        assertTimeoutPreemptively(Duration.ofSeconds(5), () -> slots.acquire(1).close());
+        assertFalse(thirdLarge.get());
+
+        large1.close();
+        waiting.join(5000);
+        assertTrue(thirdLarge.get());
+        large2.close();
+    }
+
+    @Test
+    void noMoreSolversThanSlots() throws InterruptedException {
+        SolveSlots slots = new SolveSlots(2, Long.MAX_VALUE, 1);
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicInteger running = new AtomicInteger();
+        AtomicInteger maxRunning = new AtomicInteger();
+        List<Thread> threads = new ArrayList<>();
+        for (int i=0; i < 5; i++){
+            Thread thread = new Thread(() -> {
+                try (SolveSlots.Slot slot = slots.acquire(1)) {
+                    maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+                    release.await();
+                    running.decrementAndGet();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            });
+            thread.start();
+            threads.add(thread);
+        }
+
+        assertTrue(waitFor(() -> slots.waitingCount() == 3 && running.get() == 2));
+        release.countDown();
+        for (Thread thread : threads){
+            thread.join(5000);
+        }
+        assertEquals(2, maxRunning.get());
+        assertEquals(0, slots.waitingCount());
+    }
+
+    @Test
+    void interruptedWhileWaitingGivesUpItsTurn() throws InterruptedException {
+        SolveSlots slots = new SolveSlots(1, Long.MAX_VALUE, 1);
+        SolveSlots.Slot held = slots.acquire(0);
+
+        AtomicBoolean cancelled = new AtomicBoolean();
+        AtomicBoolean stillInterrupted = new AtomicBoolean();
+        Thread waiting = new Thread(() -> {
+            try {
+                slots.acquire(0).close();
+            } catch (CancellationException e) {
+                cancelled.set(true);
+                stillInterrupted.set(Thread.currentThread().isInterrupted());
+            }
+        });
+        waiting.start();
+        assertTrue(waitFor(() -> slots.waitingCount() == 1));
+        waiting.interrupt();
+        waiting.join(5000);
+
+        assertTrue(cancelled.get());
+        assertTrue(stillInterrupted.get());
+        assertEquals(0, slots.waitingCount());
+        held.close();
+        // neither taken nor lost by the cancelled waiter
+        assertTimeoutPreemptively(Duration.ofSeconds(5), () -> slots.acquire(0).close());
+    }
+
+    private static boolean waitFor(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (!condition.getAsBoolean()){
+            if (System.currentTimeMillis() > deadline){
+                return false;
+            }
+            TimeUnit.MILLISECONDS.sleep(10);
+        }
+        return true;
+    }
+}
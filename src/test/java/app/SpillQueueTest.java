@@ -0,0 +1,78 @@
+package app;
+
+import events.Event;
+import events.EventData;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class SpillQueueTest {
+    @TempDir
+    Path dir;
+
+    @Test
+    void spillsOverCapacityAndReplaysInOrder() throws InterruptedException, IOException {
+        Path journal = dir.resolve("spill.journal");
+        SpillQueue queue = new SpillQueue(2, journal);
+        for (int i=0; i < 6; i++){
+            queue.put(event("f" + i));
+        }
+        assertEquals(2, queue.size());
+        assertEquals(4, queue.spilledSize());
+
+        for (int i=0; i < 6; i++){
+            assertEquals("f" + i, queue.take().getData());
+        }
+        assertEquals(4, queue.spilledCount());
+        assertEquals(4, queue.replayedCount());
+        assertEquals(0, queue.spilledSize());
+        // truncated once everything is replayed
+        assertEquals(0, Files.size(journal));
+    }
+
+    @Test
+    void newEventsQueueBehindTheSpilledOnes() throws InterruptedException {
+        SpillQueue queue = new SpillQueue(1, dir.resolve("spill.journal"));
+        queue.put(event("a"));
+        queue.put(event("b"));
+        assertEquals("a", queue.take().getData());
+
+        // memory has room again, but b is still in the journal
+        queue.put(event("c"));
+        assertEquals("b", queue.take().getData());
+        assertEquals("c", queue.take().getData());
+    }
+
+    @Test
+    void replaysWhatIsLeftAfterARestart() throws InterruptedException, IOException {
+        Path journal = dir.resolve("spill.journal");
+        SpillQueue crashed = new SpillQueue(1, journal);
+        for (String file : new String[]{"a", "b", "c", "d"}){
+            crashed.put(event(file));
+        }
+        assertEquals("a", crashed.take().getData());
+        assertEquals("b", crashed.take().getData());
+        // the crash cut the last line short
+        Files.writeString(journal, "FILE_READY\te", StandardCharsets.UTF_8, StandardOpenOption.APPEND);
+
+        SpillQueue restarted = new SpillQueue(1, journal);
+        assertEquals(2, restarted.spilledSize());
+        EventData c = restarted.take();
+        assertEquals(Event.FILE_READY, c.getEvent());
+        assertEquals("c", c.getData());
+        assertEquals("d", restarted.take().getData());
+        assertEquals(0, restarted.spilledSize());
+        assertEquals(0, restarted.size());
+    }
+
+    private static EventData event(String file) {
+        return new EventData(Event.FILE_READY, file);
+    }
+}
@@ -0,0 +1,103 @@
+package app;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TaskSchedulerTest {
+    private static final ThreadFactory daemons = new ThreadFactoryBuilder().setNameFormat("test-worker-%d").setDaemon(true).build();
+
+    @Test
+    void cheapestFirstThenFirstCome() throws InterruptedException {
+        // a cost of 1 per ms: the costs are far apart compared to the time the submits take
+        TaskScheduler scheduler = new TaskScheduler(1, 1, Long.MAX_VALUE, 1, daemons);
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch blocking = new CountDownLatch(1);
+        scheduler.submit(() -> {
+            blocking.countDown();
+            await(release);
+        }, 0);
+        assertTrue(blocking.await(5, TimeUnit.SECONDS));
+
+        List<String> order = new CopyOnWriteArrayList<>();
+        CountDownLatch done = new CountDownLatch(5);
+        long[] costs = {50_000, 10_000, 30_000, 10_000, 0};
+        for (int i=0; i < costs.length; i++){
+            String name = i + ":" + costs[i];
+            scheduler.submit(() -> {
+                order.add(name);
+                done.countDown();
+            }, costs[i]);
+        }
+        assertEquals(5, scheduler.size());
+        release.countDown();
+
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+        assertEquals(List.of("4:0", "1:10000", "3:10000", "2:30000", "0:50000"), order);
+    }
+
+    @Test
+    void largeLaneLeavesAWorkerToTheSmall() throws InterruptedException {
+        TaskScheduler scheduler = new TaskScheduler(3, 2, 100, 1, daemons);
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicInteger runningLarge = new AtomicInteger();
+        AtomicInteger maxLarge = new AtomicInteger();
+        CountDownLatch largeDone = new CountDownLatch(4);
+        for (int i=0; i < 4; i++){
+            scheduler.submit(() -> {
+                maxLarge.accumulateAndGet(runningLarge.incrementAndGet(), Math::max);
+                await(release);
+                runningLarge.decrementAndGet();
+                largeDone.countDown();
+            }, 100);
+        }
+
+        // the small task's deadline is earlier: submitted once the large ones hold their workers
+        assertTrue(waitFor(() -> runningLarge.get() == 2));
+        CountDownLatch small = new CountDownLatch(1);
+        scheduler.submit(small::countDown, 1);
+        // runs beside the two large ones, while they hold their workers
+        assertTrue(small.await(5, TimeUnit.SECONDS));
+        assertEquals(2, runningLarge.get());
+        assertEquals(2, scheduler.size(TaskScheduler.Lane.LARGE));
+
+        release.countDown();
+        assertTrue(largeDone.await(5, TimeUnit.SECONDS));
+        assertEquals(2, maxLarge.get());
+    }
+
+    @Test
+    void rejectsALargeLaneWithoutRoomForTheSmall() {
+        assertThrows(IllegalArgumentException.class, () -> new TaskScheduler(3, 3, 100, 1, daemons));
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static boolean waitFor(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (!condition.getAsBoolean()){
+            if (System.currentTimeMillis() > deadline){
+                return false;
+            }
+            TimeUnit.MILLISECONDS.sleep(10);
+        }
+        return true;
+    }
+}
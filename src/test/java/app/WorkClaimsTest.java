@@ -0,0 +1,162 @@
+package app;
+
+import events.Event;
+import events.Publisher;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Several nodes, each its own WorkClaims with its own node id, sharing one directory.
+ */
+class WorkClaimsTest {
+    private static final long LEASE_MS = 300;
+
+    @TempDir
+    Path dir;
+
+    private final Publisher publisher = new Publisher();
+
+    @AfterEach
+    void close() {
+        publisher.close();
+    }
+
+    @Test
+    void oneNodeAtATime() throws IOException {
+        Path file = Files.writeString(dir.resolve("a.txt"), "Knapsack\n");
+        List<WorkClaims> nodes = nodes(3, LEASE_MS);
+
+        WorkClaims.Claim claim = nodes.get(0).tryClaim(file);
+        assertNotNull(claim);
+        assertNull(nodes.get(1).tryClaim(file));
+        assertNull(nodes.get(2).tryClaim(file));
+        // and not twice by its owner either
+        assertNull(nodes.get(0).tryClaim(file));
+
+        claim.close();
+        assertFalse(Files.exists(WorkClaims.claimFile(file)));
+        WorkClaims.Claim next = nodes.get(1).tryClaim(file);
+        assertNotNull(next);
+        assertNull(nodes.get(2).tryClaim(file));
+        next.close();
+    }
+
+    @Test
+    void takenOverOnceTheLeaseExpires() throws IOException, InterruptedException {
+        Path file = Files.writeString(dir.resolve("a.txt"), "Knapsack\n");
+        List<WorkClaims> nodes = nodes(3, LEASE_MS);
+        CountDownLatch lost = new CountDownLatch(1);
+        // node 0 stops renewing, as if it died
+        WorkClaims.Claim dead = nodes.get(0).tryClaim(file, lost::countDown);
+        assertNotNull(dead);
+        assertNull(nodes.get(1).tryClaim(file));
+
+        Thread.sleep(LEASE_MS + 200);
+        WorkClaims.Claim taken = nodes.get(1).tryClaim(file);
+        assertNotNull(taken);
+        assertNull(nodes.get(2).tryClaim(file));
+
+        // node 0 comes back: its first renewal finds the claim isn't its own any more
+        nodes.get(0).start();
+        assertTrue(lost.await(5, TimeUnit.SECONDS));
+        dead.close();
+        assertTrue(Files.exists(WorkClaims.claimFile(file)), "the new owner's claim was deleted");
+        assertNull(nodes.get(2).tryClaim(file));
+        taken.close();
+    }
+
+    @Test
+    void oneWinnerWhenNodesRaceForAStaleClaim() throws Exception {
+        Path file = Files.writeString(dir.resolve("a.txt"), "Knapsack\n");
+        int n = 6;
+        List<WorkClaims> nodes = nodes(n, LEASE_MS);
+        ExecutorService racers = Executors.newFixedThreadPool(n);
+        try {
+            for (int round=0; round < 200; round++){
+                Path claimFile = WorkClaims.claimFile(file);
+                Files.writeString(claimFile, "dead\n");
+                Files.setLastModifiedTime(claimFile, FileTime.fromMillis(System.currentTimeMillis() - 10 * LEASE_MS));
+
+                CyclicBarrier start = new CyclicBarrier(n);
+                List<Future<WorkClaims.Claim>> claims = new ArrayList<>();
+                for (WorkClaims node : nodes){
+                    claims.add(racers.submit(() -> {
+                        start.await(5, TimeUnit.SECONDS);
+                        return node.tryClaim(file);
+                    }));
+                }
+                List<WorkClaims.Claim> won = new ArrayList<>();
+                for (Future<WorkClaims.Claim> claim : claims){
+                    WorkClaims.Claim c = claim.get(5, TimeUnit.SECONDS);
+                    if (c != null){
+                        won.add(c);
+                    }
+                }
+                assertTrue(won.size() <= 1, "round " + round + ": " + won.size() + " nodes claimed the file");
+                won.forEach(WorkClaims.Claim::close);
+                deleteClaimFiles();
+            }
+        } finally {
+            racers.shutdownNow();
+        }
+    }
+
+    @Test
+    void sweepQueuesAnUnsolvedFileWithAStaleClaimAgain() throws IOException, InterruptedException {
+        Path unsolved = Files.writeString(dir.resolve("a.txt"), "Knapsack\n");
+        Path solved = Files.writeString(dir.resolve("b.txt"), "Knapsack\n\nSolution:\n0\n");
+        for (Path file : new Path[]{unsolved, solved}){
+            Path claimFile = WorkClaims.claimFile(file);
+            Files.writeString(claimFile, "dead\n");
+            Files.setLastModifiedTime(claimFile, FileTime.fromMillis(System.currentTimeMillis() - 10 * LEASE_MS));
+        }
+        BlockingQueue<String> created = new LinkedBlockingQueue<>();
+        publisher.subscribe(Event.FILE_CREATED, eventData -> created.add(eventData.getData()));
+
+        nodes(1, LEASE_MS).get(0).sweep();
+        assertEquals(unsolved.toString(), created.poll(5, TimeUnit.SECONDS));
+        assertNull(created.poll(200, TimeUnit.MILLISECONDS));
+        assertFalse(Files.exists(WorkClaims.claimFile(solved)));
+    }
+
+    private List<WorkClaims> nodes(int n, long leaseMs) {
+        List<WorkClaims> nodes = new ArrayList<>();
+        for (int i=0; i < n; i++){
+            nodes.add(new WorkClaims(dir, "node-" + i, leaseMs, publisher));
+        }
+        return nodes;
+    }
+
+    private void deleteClaimFiles() throws IOException {
+        try (Stream<Path> files = Files.list(dir)) {
+            for (Path file : (Iterable<Path>) files.filter(f -> f.getFileName().toString().startsWith("."))::iterator){
+                Files.deleteIfExists(file);
+            }
+        }
+    }
+}
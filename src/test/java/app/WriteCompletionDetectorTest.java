@@ -0,0 +1,94 @@
+package app;
+
+import events.Event;
+import events.EventData;
+import events.Publisher;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class WriteCompletionDetectorTest {
+    private static final long QUIET_MS = 200;
+
+    @TempDir
+    Path dir;
+
+    private final Publisher publisher = new Publisher();
+    private final BlockingQueue<String> ready = new LinkedBlockingQueue<>();
+
+    @AfterEach
+    void close() {
+        publisher.close();
+    }
+
+    @Test
+    void readyAfterTheSizeStaysTheSameForTheQuietPeriod() throws IOException, InterruptedException {
+        WriteCompletionDetector detector = start(QUIET_MS);
+        Path file = Files.writeString(dir.resolve("problem.txt"), "knapsack\n");
+        detector.accept(new EventData(Event.FILE_CREATED, file.toString()));
+
+        // a slow producer: still writing after several quiet periods
+        for (int i=0; i < 12; i++){
+            Thread.sleep(QUIET_MS / 4);
+            Files.writeString(file, i + "\n", StandardOpenOption.APPEND);
+            assertNull(ready.poll(), "ready while being written");
+        }
+        long lastWrite = System.currentTimeMillis();
+
+        assertEquals(file.toString(), ready.poll(5, TimeUnit.SECONDS));
+        assertTrue(System.currentTimeMillis() - lastWrite >= QUIET_MS);
+        assertEquals(0, detector.size());
+        assertNull(ready.poll(3 * QUIET_MS, TimeUnit.MILLISECONDS), "ready twice");
+    }
+
+    @Test
+    void readyAsSoonAsTheMarkerAppears() throws IOException, InterruptedException {
+        WriteCompletionDetector detector = start(60_000);
+        Path file = Files.writeString(dir.resolve("problem.txt"), "knapsack\n");
+        detector.accept(new EventData(Event.FILE_CREATED, file.toString()));
+        detector.accept(new EventData(Event.FILE_CREATED, file + ".ready"));
+
+        assertEquals(file.toString(), ready.poll(5, TimeUnit.SECONDS));
+        assertEquals(0, detector.size());
+    }
+
+    @Test
+    void ignoresChangesOfUntrackedFiles() throws IOException, InterruptedException {
+        WriteCompletionDetector detector = start(QUIET_MS);
+        Path file = Files.writeString(dir.resolve("solved.txt"), "knapsack\n");
+        detector.accept(new EventData(Event.FILE_CHANGED, file.toString()));
+
+        assertEquals(0, detector.size());
+        assertNull(ready.poll(3 * QUIET_MS, TimeUnit.MILLISECONDS));
+    }
+
+    @Test
+    void dropsAFileDeletedBeforeItIsReady() throws IOException, InterruptedException {
+        WriteCompletionDetector detector = start(QUIET_MS);
+        Path file = Files.writeString(dir.resolve("problem.txt"), "knapsack\n");
+        detector.accept(new EventData(Event.FILE_CREATED, file.toString()));
+        Files.delete(file);
+
+        assertNull(ready.poll(3 * QUIET_MS, TimeUnit.MILLISECONDS));
+        assertEquals(0, detector.size());
+    }
+
+    private WriteCompletionDetector start(long quietMs) {
+        WriteCompletionDetector detector = new WriteCompletionDetector(publisher, quietMs, ".ready");
+        publisher.subscribe(Event.FILE_READY, eventData -> ready.add(eventData.getData()));
+        detector.start();
+        return detector;
+    }
+}
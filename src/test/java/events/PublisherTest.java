@@ -0,0 +1,128 @@
+package events;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class PublisherTest {
+    private static final int BUFFER_SIZE = 4;
+
+    private final Publisher publisher = new Publisher(BUFFER_SIZE);
+
+    @AfterEach
+    void close() {
+        publisher.close();
+    }
+
+    @Test
+    void dropNewestKeepsTheBuffered() throws InterruptedException {
+        BlockedSubscriber subscriber = subscribeBlocked(OverflowPolicy.DROP_NEWEST);
+        publishRange(1, 10);
+        subscriber.release.countDown();
+
+        assertEquals(List.of("0", "1", "2", "3", "4"), subscriber.awaitReceived(5));
+        assertEquals(6, publisher.droppedCount());
+    }
+
+    @Test
+    void dropOldestKeepsTheLatest() throws InterruptedException {
+        BlockedSubscriber subscriber = subscribeBlocked(OverflowPolicy.DROP_OLDEST);
+        publishRange(1, 10);
+        subscriber.release.countDown();
+
+        assertEquals(List.of("0", "7", "8", "9", "10"), subscriber.awaitReceived(5));
+        assertEquals(6, publisher.droppedCount());
+    }
+
+    @Test
+    void blockWaitsForRoom() throws InterruptedException {
+        BlockedSubscriber subscriber = subscribeBlocked(OverflowPolicy.BLOCK);
+        Thread publishing = new Thread(() -> publishRange(1, 10));
+        publishing.start();
+        publishing.join(200);
+        // the buffer is full, the subscriber still busy with the first event
+        assertTrue(publishing.isAlive());
+
+        subscriber.release.countDown();
+        publishing.join(5000);
+        assertEquals(IntStream.rangeClosed(0, 10).mapToObj(Integer::toString).toList(), subscriber.awaitReceived(11));
+        assertEquals(0, publisher.droppedCount());
+    }
+
+    @Test
+    void wakesAnIdleSubscriberForEveryEvent() throws InterruptedException {
+        Semaphore delivered = new Semaphore(0);
+        publisher.subscribe(Event.FILE_READY, eventData -> delivered.release());
+        // one at a time, so the drainer parks between events: a lost unpark would hang here
+        for (int i=0; i < 2000; i++){
+            publish(i);
+            assertTrue(delivered.tryAcquire(5, TimeUnit.SECONDS), "event " + i);
+        }
+    }
+
+    @Test
+    void closeDeliversTheBuffered() throws InterruptedException {
+        BlockedSubscriber subscriber = subscribeBlocked(OverflowPolicy.BLOCK);
+        publishRange(1, 3);
+        publisher.close();
+        subscriber.release.countDown();
+
+        assertEquals(List.of("0", "1", "2", "3"), subscriber.awaitReceived(4));
+    }
+
+    /**
+     * @return a subscriber whose drainer is blocked delivering event 0
+     */
+    private BlockedSubscriber subscribeBlocked(OverflowPolicy policy) throws InterruptedException {
+        BlockedSubscriber subscriber = new BlockedSubscriber();
+        publisher.subscribe(Event.FILE_READY, subscriber, policy);
+        publish(0);
+        assertTrue(subscriber.blocked.await(5, TimeUnit.SECONDS));
+        return subscriber;
+    }
+
+    private void publishRange(int from, int to) {
+        for (int i=from; i <= to; i++){
+            publish(i);
+        }
+    }
+
+    private void publish(int i) {
+        publisher.notifyListeners(new EventData(Event.FILE_READY, Integer.toString(i)));
+    }
+
+    private static class BlockedSubscriber implements EventSubscriber {
+        final CountDownLatch blocked = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        final List<String> received = new CopyOnWriteArrayList<>();
+
+        @Override
+        public void accept(EventData eventData) {
+            received.add(eventData.getData());
+            blocked.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        List<String> awaitReceived(int count) throws InterruptedException {
+            long deadline = System.currentTimeMillis() + 5000;
+            while (received.size() < count && System.currentTimeMillis() < deadline){
+                Thread.sleep(10);
+            }
+            Thread.sleep(50); // and no more
+            return List.copyOf(received);
+        }
+    }
+}
@@ -0,0 +1,90 @@
+package events;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RingBufferTest {
+
+    @Test
+    void capacityIsAPowerOfTwo() {
+        assertEquals(2, new RingBuffer<>(1).capacity());
+        assertEquals(8, new RingBuffer<>(5).capacity());
+        assertEquals(8, new RingBuffer<>(8).capacity());
+    }
+
+    @Test
+    void fifoUntilFullOverSeveralLaps() {
+        RingBuffer<Integer> buffer = new RingBuffer<>(4);
+        int next = 0;
+        int expected = 0;
+        for (int lap=0; lap < 5; lap++){
+            while (buffer.offer(next)){
+                next++;
+            }
+            assertEquals(4, buffer.size());
+            assertFalse(buffer.offer(-1));
+            // half out, so the next lap starts mid-array
+            for (int i=0; i < 2 + lap % 3; i++){
+                assertEquals(expected++, buffer.poll());
+            }
+        }
+        while (!buffer.isEmpty()){
+            assertEquals(expected++, buffer.poll());
+        }
+        assertEquals(next, expected);
+        assertNull(buffer.poll());
+    }
+
+    @Test
+    void everyItemOnceWithManyProducersAndConsumers() throws InterruptedException {
+        int producers = 4;
+        int perProducer = 20_000;
+        RingBuffer<Integer> buffer = new RingBuffer<>(64);
+        AtomicIntegerArray seen = new AtomicIntegerArray(producers * perProducer);
+        AtomicInteger consumed = new AtomicInteger();
+
+        List<Thread> threads = new ArrayList<>();
+        for (int p=0; p < producers; p++){
+            int first = p * perProducer;
+            threads.add(new Thread(() -> {
+                for (int i=first; i < first + perProducer; i++){
+                    while (!buffer.offer(i)){
+                        Thread.yield();
+                    }
+                }
+            }));
+        }
+        for (int c=0; c < 2; c++){
+            threads.add(new Thread(() -> {
+                while (consumed.get() < producers * perProducer){
+                    Integer item = buffer.poll();
+                    if (item == null){
+                        Thread.yield();
+                        continue;
+                    }
+                    seen.incrementAndGet(item);
+                    consumed.incrementAndGet();
+                }
+            }));
+        }
+        threads.forEach(Thread::start);
+        for (Thread thread : threads){
+            thread.join(30_000);
+        }
+
+        assertEquals(producers * perProducer, consumed.get());
+        for (int i=0; i < seen.length(); i++){
+            assertEquals(1, seen.get(i), "item " + i);
+        }
+        assertTrue(buffer.isEmpty());
+    }
+}